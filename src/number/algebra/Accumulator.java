@@ -0,0 +1,25 @@
+package number.algebra;
+
+/**
+ * 環の元の和を一時オブジェクトを作らずに累積するための可変な作業領域。
+ *
+ * {@link RingElement#accumulator()}で得る。スレッドセーフではない。
+ */
+public interface Accumulator<R extends RingElement<R>> {
+
+    /**
+     * 累積値に{@code value}を加える。
+     */
+    void add(R value);
+
+    /**
+     * 累積値に{@code a * b}を加える。
+     */
+    void addProduct(R a, R b);
+
+    /**
+     * 現在の累積値。呼び出した後も累積を続けてよい。
+     */
+    R result();
+
+}
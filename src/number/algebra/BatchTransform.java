@@ -0,0 +1,269 @@
+package number.algebra;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 1つの行列を多数のベクトルに作用させるための一括変換。
+ *
+ * 行列の0でない成分だけを行ごとに詰めた配列を最初に一度だけ作り、入力のベクトルを{@link #chunkSize()}個ずつの
+ * まとまりに分けて{@link #executor()}で並列に変換する。入力は{@link Iterator}や{@link Stream}から逐次読み出し、
+ * 同時に処理中のまとまりの個数も制限するため、入力全体がメモリに載ることはない。
+ * インスタンスは不変で、{@code with}で始まるメソッドは設定を変えた新しいインスタンスを返す。
+ */
+public final class BatchTransform<F extends FieldElement<F>> {
+
+    private static final int DEFAULT_CHUNK_SIZE = Math.max(1,
+            Integer.getInteger("number.algebra.BatchTransform.chunkSize", 256));
+
+    private final VectorSpace<F> domain;
+    private final VectorSpace<F> codomain;
+    /** i行目の0でない成分の列番号は{@code columnIndexes[rowStarts[i]]}から{@code columnIndexes[rowStarts[i + 1] - 1]} */
+    private final int[] rowStarts;
+    private final int[] columnIndexes;
+    private final F[] values;
+    /** 0でない成分のない行の値。行列が空の場合はnull */
+    private final F zero;
+
+    private final ExecutorService executor;
+    private final int chunkSize;
+
+    private BatchTransform(final BatchTransform<F> base, final ExecutorService executor, final int chunkSize) {
+        this.domain = base.domain;
+        this.codomain = base.codomain;
+        this.rowStarts = base.rowStarts;
+        this.columnIndexes = base.columnIndexes;
+        this.values = base.values;
+        this.zero = base.zero;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    private BatchTransform(final Matrices<F>.Matrix matrix, final Class<F> coefficientClass) {
+        final int rows = matrix.rowSize();
+        final int columns = matrix.columnSize();
+        if (rows > 0 && columns == 0) {
+            throw new AlgebraicException("cannot construct zero vector from empty matrix");
+        }
+        this.domain = VectorSpace.of(coefficientClass, columns);
+        this.codomain = VectorSpace.of(coefficientClass, rows);
+
+        final F[] coeffs = matrix.coefficients();
+        int nonZero = 0;
+        for (final F coeff : coeffs) {
+            if (!coeff.isZero()) {
+                nonZero++;
+            }
+        }
+        this.rowStarts = new int[rows + 1];
+        this.columnIndexes = new int[nonZero];
+        this.values = Matrices.newArray(coefficientClass, nonZero);
+        int idx = 0;
+        for (int i = 0; i < rows; i++) {
+            this.rowStarts[i] = idx;
+            for (int j = 0; j < columns; j++) {
+                final F coeff = coeffs[i * columns + j];
+                if (!coeff.isZero()) {
+                    this.columnIndexes[idx] = j;
+                    this.values[idx] = coeff;
+                    idx++;
+                }
+            }
+        }
+        this.rowStarts[rows] = idx;
+        this.zero = coeffs.length == 0 ? null : coeffs[0].subtract(coeffs[0]);
+
+        this.executor = Matrices.parallelPool();
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+    }
+
+    static <F extends FieldElement<F>> BatchTransform<F> of(final Matrices<F>.Matrix matrix,
+            final Class<F> coefficientClass) {
+        return new BatchTransform<>(matrix, coefficientClass);
+    }
+
+    public ExecutorService executor() {
+        return this.executor;
+    }
+
+    public BatchTransform<F> withExecutor(final ExecutorService executor) {
+        if (executor == null) {
+            throw new NullPointerException("executor");
+        }
+        return new BatchTransform<>(this, executor, this.chunkSize);
+    }
+
+    /**
+     * 1つのタスクで変換するベクトルの個数。既定値はシステムプロパティ{@code number.algebra.BatchTransform.chunkSize}(256)。
+     */
+    public int chunkSize() {
+        return this.chunkSize;
+    }
+
+    public BatchTransform<F> withChunkSize(final int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive: " + chunkSize);
+        }
+        return new BatchTransform<>(this, this.executor, chunkSize);
+    }
+
+    /**
+     * 1つのベクトルを変換する。呼び出したスレッドで計算する。
+     */
+    public VectorSpace<F>.Vector apply(final VectorSpace<F>.Vector v) {
+        if (v.dim() != this.domain.dim()) {
+            throw new IllegalArgumentException(
+                    "vector has unmatch dimension: " + v.dim() + ", need: " + this.domain.dim());
+        }
+        final F[] x = v.coefficients();
+        final int rows = this.codomain.dim();
+        final F[] result = Matrices.newArray(this.codomain.coefficientClass(), rows);
+        for (int i = 0; i < rows; i++) {
+            final int start = this.rowStarts[i];
+            final int end = this.rowStarts[i + 1];
+            if (start == end) {
+                result[i] = this.zero;
+                continue;
+            }
+            final Accumulator<F> sum = this.values[start].multiply(x[this.columnIndexes[start]]).accumulator();
+            for (int idx = start + 1; idx < end; idx++) {
+                sum.addProduct(this.values[idx], x[this.columnIndexes[idx]]);
+            }
+            result[i] = sum.result();
+        }
+        return this.codomain.wrap(result);
+    }
+
+    /**
+     * 入力の各ベクトルを変換した結果を順に返す{@link Iterator}。
+     * 入力は必要になった分だけ読み出し、{@link #executor()}上で同時に処理するまとまりは並列度の2倍までとする。
+     *
+     * @param ordered
+     *            trueなら入力と同じ順に、falseなら変換の終わったまとまりから順に返す
+     */
+    public Iterator<VectorSpace<F>.Vector> applyAll(final Iterator<? extends VectorSpace<F>.Vector> input,
+            final boolean ordered) {
+        return new ChunkIterator(input, ordered);
+    }
+
+    /**
+     * {@link #applyAll(Iterator, boolean)}の{@link Stream}版。結果のStreamは逐次Streamで、並列化はこのクラスが行う。
+     */
+    public Stream<VectorSpace<F>.Vector> applyAll(final Stream<? extends VectorSpace<F>.Vector> input,
+            final boolean ordered) {
+        final Iterator<VectorSpace<F>.Vector> iterator = this.applyAll(input.iterator(), ordered);
+        final int characteristics = Spliterator.NONNULL | (ordered ? Spliterator.ORDERED : 0);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, characteristics), false)
+                .onClose(input::close);
+    }
+
+    private List<VectorSpace<F>.Vector> applyChunk(final List<VectorSpace<F>.Vector> chunk) {
+        final List<VectorSpace<F>.Vector> results = new ArrayList<>(chunk.size());
+        for (final VectorSpace<F>.Vector v : chunk) {
+            results.add(this.apply(v));
+        }
+        return results;
+    }
+
+    private final class ChunkIterator implements Iterator<VectorSpace<F>.Vector> {
+
+        private final Iterator<? extends VectorSpace<F>.Vector> input;
+        private final int maxInFlight;
+        /** 順序を保つ場合の処理中のまとまり(先頭が最も古い) */
+        private final Deque<Future<List<VectorSpace<F>.Vector>>> pending;
+        /** 順序を保たない場合の処理中のまとまり */
+        private final CompletionService<List<VectorSpace<F>.Vector>> completion;
+        private int inFlight = 0;
+        private Iterator<VectorSpace<F>.Vector> current = Collections.emptyIterator();
+
+        ChunkIterator(final Iterator<? extends VectorSpace<F>.Vector> input, final boolean ordered) {
+            this.input = input;
+            final int parallelism = BatchTransform.this.executor instanceof ForkJoinPool
+                    ? ((ForkJoinPool) BatchTransform.this.executor).getParallelism()
+                    : Runtime.getRuntime().availableProcessors();
+            this.maxInFlight = 2 * Math.max(1, parallelism);
+            this.pending = ordered ? new ArrayDeque<>() : null;
+            this.completion = ordered ? null : new ExecutorCompletionService<>(BatchTransform.this.executor);
+        }
+
+        private void fill() {
+            while (this.inFlight < this.maxInFlight && this.input.hasNext()) {
+                final List<VectorSpace<F>.Vector> chunk = new ArrayList<>(BatchTransform.this.chunkSize);
+                while (chunk.size() < BatchTransform.this.chunkSize && this.input.hasNext()) {
+                    chunk.add(this.input.next());
+                }
+                if (this.pending != null) {
+                    this.pending.addLast(BatchTransform.this.executor.submit(() -> applyChunk(chunk)));
+                } else {
+                    this.completion.submit(() -> applyChunk(chunk));
+                }
+                this.inFlight++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!this.current.hasNext()) {
+                this.fill();
+                if (this.inFlight == 0) {
+                    return false;
+                }
+                final Future<List<VectorSpace<F>.Vector>> next;
+                try {
+                    next = this.pending != null ? this.pending.removeFirst() : this.completion.take();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted while waiting for batch transform", e);
+                }
+                this.inFlight--;
+                this.current = join(next).iterator();
+                // 取り出した分だけ次のまとまりを先に投入しておく
+                this.fill();
+            }
+            return true;
+        }
+
+        @Override
+        public VectorSpace<F>.Vector next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return this.current.next();
+        }
+
+    }
+
+    private static <T> T join(final Future<T> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for batch transform", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+}
@@ -1,13 +1,15 @@
 package number.algebra;
 
-public interface FieldElement<F extends FieldElement<F>> extends RingElement<F> {
+public interface FieldElement<F extends FieldElement<F>> extends IntegralDomainElement<F> {
 
     F invert();
 
+    @Override
     default F divide(F other) {
         return this.multiply(other.invert());
     }
 
+    @Override
     boolean isOne();
 
 }
@@ -0,0 +1,110 @@
+package number.algebra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 体を係数とする行列に対する消去法を用いた演算。
+ *
+ * いずれも係数配列の作業用の複製を1つだけ作り、その上で行基本変形を行う。
+ */
+final class FieldMatrices {
+
+    private FieldMatrices() {
+    }
+
+    static <F extends FieldElement<F>> Matrices<F>.Matrix inverse(final Matrices<F>.Matrix matrix) {
+        return LUDecomposition.of(matrix).inverse();
+    }
+
+    static <F extends FieldElement<F>> Matrices<F>.Matrix rref(final Matrices<F>.Matrix matrix) {
+        final F[] a = matrix.coefficients().clone();
+        GaussianElimination.reduce(a, matrix.rowSize(), matrix.columnSize(), matrix.columnSize());
+        return matrix.matrices().wrap(a);
+    }
+
+    static <F extends FieldElement<F>> VectorSpace<F>.Vector solve(final Matrices<F>.Matrix matrix,
+            final VectorSpace<F>.Vector b) {
+        final int rows = matrix.rowSize();
+        final int columns = matrix.columnSize();
+        if (b.dim() != rows) {
+            throw new IllegalArgumentException("vector has unmatch dimension: " + b.dim() + ", need: " + rows);
+        }
+        if (rows == columns) {
+            final LUDecomposition<F> lu = LUDecomposition.of(matrix);
+            if (!lu.isSingular()) {
+                return lu.solve(b);
+            }
+        }
+
+        // 拡大係数行列 [A | b] を既約行階段形にする
+        final int augmentedColumns = columns + 1;
+        final F[] a = Matrices.newArray(b.space().coefficientClass(), rows * augmentedColumns);
+        final F[] coeffs = matrix.coefficients();
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(coeffs, i * columns, a, i * augmentedColumns, columns);
+            a[i * augmentedColumns + columns] = b.get(i);
+        }
+        final int[] pivots = GaussianElimination.reduce(a, rows, augmentedColumns, columns);
+        for (int i = pivots.length; i < rows; i++) {
+            if (!a[i * augmentedColumns + columns].isZero()) {
+                throw new AlgebraicException("linear system has no solution");
+            }
+        }
+
+        final VectorSpace<F> space = VectorSpace.of(b.space().coefficientClass(), columns);
+        final F[] x = Matrices.newArray(b.space().coefficientClass(), columns);
+        if (columns > 0) {
+            if (rows == 0) {
+                // 係数が1つもなく、自由変数に入れる零元を得られない
+                throw new AlgebraicException("cannot construct zero vector from empty matrix");
+            }
+            Arrays.fill(x, coeffs[0].subtract(coeffs[0]));
+        }
+        for (int r = 0; r < pivots.length; r++) {
+            x[pivots[r]] = a[r * augmentedColumns + columns];
+        }
+        return space.wrap(x);
+    }
+
+    static <F extends FieldElement<F>> List<VectorSpace<F>.Vector> nullspace(final Matrices<F>.Matrix matrix) {
+        final int rows = matrix.rowSize();
+        final int columns = matrix.columnSize();
+        final F[] a = matrix.coefficients().clone();
+        final int[] pivots = GaussianElimination.reduce(a, rows, columns, columns);
+
+        final List<VectorSpace<F>.Vector> basis = new ArrayList<>(columns - pivots.length);
+        if (pivots.length == columns) {
+            return basis;
+        }
+        if (pivots.length == 0) {
+            // 基底は標準基底だが、体の元の演算だけでは零元から単位元を作れない
+            throw new AlgebraicException("cannot construct unit element from zero matrix");
+        }
+        // 軸の成分は正規化済みなので1である
+        final F one = a[pivots[0]];
+        final F zero = one.subtract(one);
+        final boolean[] isPivot = new boolean[columns];
+        for (final int pivot : pivots) {
+            isPivot[pivot] = true;
+        }
+
+        final Class<F> coefficientClass = matrix.matrices().coefficientClass();
+        final VectorSpace<F> space = VectorSpace.of(coefficientClass, columns);
+        for (int free = 0; free < columns; free++) {
+            if (isPivot[free]) {
+                continue;
+            }
+            final F[] x = Matrices.newArray(coefficientClass, columns);
+            Arrays.fill(x, zero);
+            x[free] = one;
+            for (int r = 0; r < pivots.length; r++) {
+                x[pivots[r]] = a[r * columns + free].negate();
+            }
+            basis.add(space.wrap(x));
+        }
+        return basis;
+    }
+
+}
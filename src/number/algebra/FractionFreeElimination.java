@@ -0,0 +1,110 @@
+package number.algebra;
+
+/**
+ * Bareissの方法による分数を使わない消去法。
+ *
+ * k段目の消去後の各成分は元の行列の(k + 1)次の小行列式に等しいため、
+ * 途中の値はすべて整域の元のまま保たれ、その大きさも小行列式の大きさで抑えられる。
+ * 各段の除算は常に割り切れる。
+ */
+final class FractionFreeElimination {
+
+    private FractionFreeElimination() {
+    }
+
+    /**
+     * 正方行列の行列式を計算する。{@code a}は作業領域として書き換えられる。
+     *
+     * @param a
+     *            行優先で並べたn×n行列の係数
+     */
+    static <D extends IntegralDomainElement<D>> D determinant(final D[] a, final int n) {
+        boolean negative = false;
+        D previousPivot = null;
+        for (int k = 0; k < n; k++) {
+            final int pivotRow = findPivotRow(a, n, k, n, k);
+            if (pivotRow < 0) {
+                return a[0].subtract(a[0]);
+            }
+            if (pivotRow != k) {
+                swapRows(a, n, k, pivotRow);
+                negative = !negative;
+            }
+            eliminate(a, n, n, k, k, previousPivot);
+            previousPivot = a[k * n + k];
+        }
+        final D determinant = a[(n - 1) * n + (n - 1)];
+        return negative ? determinant.negate() : determinant;
+    }
+
+    /**
+     * 行列の階数を計算する。{@code a}は作業領域として書き換えられる。
+     *
+     * @param a
+     *            行優先で並べたrows×columns行列の係数
+     */
+    static <D extends IntegralDomainElement<D>> int rank(final D[] a, final int rows, final int columns) {
+        int rank = 0;
+        D previousPivot = null;
+        for (int column = 0; column < columns && rank < rows; column++) {
+            final int pivotRow = findPivotRow(a, columns, rank, rows, column);
+            if (pivotRow < 0) {
+                continue;
+            }
+            if (pivotRow != rank) {
+                swapRows(a, columns, rank, pivotRow);
+            }
+            eliminate(a, rows, columns, rank, column, previousPivot);
+            previousPivot = a[rank * columns + column];
+            rank++;
+        }
+        return rank;
+    }
+
+    private static <D extends IntegralDomainElement<D>> int findPivotRow(final D[] a, final int columns,
+            final int fromRow, final int toRow, final int column) {
+        for (int row = fromRow; row < toRow; row++) {
+            if (!a[row * columns + column].isZero()) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private static <D> void swapRows(final D[] a, final int columns, final int row1, final int row2) {
+        final int offset1 = row1 * columns;
+        final int offset2 = row2 * columns;
+        for (int j = 0; j < columns; j++) {
+            final D tmp = a[offset1 + j];
+            a[offset1 + j] = a[offset2 + j];
+            a[offset2 + j] = tmp;
+        }
+    }
+
+    /**
+     * (pivotRow, pivotColumn)を軸として、それより右下の成分を
+     * {@code (a[i][j] * pivot - a[i][pivotColumn] * a[pivotRow][j]) / previousPivot}で更新する。
+     */
+    private static <D extends IntegralDomainElement<D>> void eliminate(final D[] a, final int rows,
+            final int columns, final int pivotRow, final int pivotColumn, final D previousPivot) {
+        final int pivotOffset = pivotRow * columns;
+        final D pivot = a[pivotOffset + pivotColumn];
+        for (int i = pivotRow + 1; i < rows; i++) {
+            final int offset = i * columns;
+            final D factor = a[offset + pivotColumn];
+            if (factor.isZero()) {
+                // 軸の列が0の行はpivot倍して前段の軸で割るだけでよい
+                for (int j = pivotColumn + 1; j < columns; j++) {
+                    final D value = a[offset + j].multiply(pivot);
+                    a[offset + j] = previousPivot == null ? value : value.divide(previousPivot);
+                }
+                continue;
+            }
+            for (int j = pivotColumn + 1; j < columns; j++) {
+                final D value = a[offset + j].multiply(pivot).subtract(factor.multiply(a[pivotOffset + j]));
+                a[offset + j] = previousPivot == null ? value : value.divide(previousPivot);
+            }
+        }
+    }
+
+}
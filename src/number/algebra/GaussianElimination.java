@@ -0,0 +1,126 @@
+package number.algebra;
+
+import java.util.Arrays;
+
+/**
+ * 体を係数とする行列に対するGaussの消去法。
+ *
+ * いずれのメソッドも行優先で並べた係数配列をその場で書き換える。
+ * 呼び出し側で作業用の複製を用意すること。
+ */
+final class GaussianElimination {
+
+    private GaussianElimination() {
+    }
+
+    /**
+     * 既約行階段形(RREF)に変形する。軸は{@code [0, pivotColumns)}の列からのみ選ぶため、
+     * 拡大係数行列の右側を軸に選ばせないことができる。
+     *
+     * @return 軸の列番号(行の順)
+     */
+    static <F extends FieldElement<F>> int[] reduce(final F[] a, final int rows, final int columns,
+            final int pivotColumns) {
+        final int[] pivots = new int[Math.min(rows, pivotColumns)];
+        int rank = 0;
+        for (int column = 0; column < pivotColumns && rank < rows; column++) {
+            int pivotRow = -1;
+            for (int row = rank; row < rows; row++) {
+                if (!a[row * columns + column].isZero()) {
+                    pivotRow = row;
+                    break;
+                }
+            }
+            if (pivotRow < 0) {
+                continue;
+            }
+            swapRows(a, columns, rank, pivotRow);
+
+            // 軸の行を軸が1になるよう正規化する
+            final int pivotOffset = rank * columns;
+            final F inverse = a[pivotOffset + column].invert();
+            a[pivotOffset + column] = a[pivotOffset + column].multiply(inverse);
+            for (int j = column + 1; j < columns; j++) {
+                a[pivotOffset + j] = a[pivotOffset + j].multiply(inverse);
+            }
+
+            // 軸の列の他の行をすべて0にする
+            for (int row = 0; row < rows; row++) {
+                if (row == rank) {
+                    continue;
+                }
+                final int offset = row * columns;
+                final F factor = a[offset + column];
+                if (factor.isZero()) {
+                    continue;
+                }
+                for (int j = column; j < columns; j++) {
+                    a[offset + j] = a[offset + j].subtract(factor.multiply(a[pivotOffset + j]));
+                }
+            }
+            pivots[rank++] = column;
+        }
+        return Arrays.copyOf(pivots, rank);
+    }
+
+    /**
+     * 部分ピボット選択付きのLU分解を行う。実行後の{@code a}は対角より下に単位下三角行列Lの成分、
+     * 対角以上に上三角行列Uの成分を保持し、{@code permutation[i]}は分解後のi行目に対応する元の行番号となる。
+     *
+     * @return 行の入れ替え回数が奇数ならtrue
+     */
+    static <F extends FieldElement<F>> boolean decompose(final F[] a, final int n, final int[] permutation) {
+        for (int i = 0; i < n; i++) {
+            permutation[i] = i;
+        }
+        boolean odd = false;
+        for (int k = 0; k < n; k++) {
+            int pivotRow = -1;
+            for (int row = k; row < n; row++) {
+                if (!a[row * n + k].isZero()) {
+                    pivotRow = row;
+                    break;
+                }
+            }
+            if (pivotRow < 0) {
+                // この列は消去済みなので次の列に進む(Uの対角成分が0になり特異となる)
+                continue;
+            }
+            if (pivotRow != k) {
+                swapRows(a, n, k, pivotRow);
+                final int tmp = permutation[k];
+                permutation[k] = permutation[pivotRow];
+                permutation[pivotRow] = tmp;
+                odd = !odd;
+            }
+            final int pivotOffset = k * n;
+            final F inverse = a[pivotOffset + k].invert();
+            for (int row = k + 1; row < n; row++) {
+                final int offset = row * n;
+                if (a[offset + k].isZero()) {
+                    continue;
+                }
+                final F factor = a[offset + k].multiply(inverse);
+                a[offset + k] = factor;
+                for (int j = k + 1; j < n; j++) {
+                    a[offset + j] = a[offset + j].subtract(factor.multiply(a[pivotOffset + j]));
+                }
+            }
+        }
+        return odd;
+    }
+
+    static <F> void swapRows(final F[] a, final int columns, final int row1, final int row2) {
+        if (row1 == row2) {
+            return;
+        }
+        final int offset1 = row1 * columns;
+        final int offset2 = row2 * columns;
+        for (int j = 0; j < columns; j++) {
+            final F tmp = a[offset1 + j];
+            a[offset1 + j] = a[offset2 + j];
+            a[offset2 + j] = tmp;
+        }
+    }
+
+}
@@ -0,0 +1,10 @@
+package number.algebra;
+
+public interface IntegralDomainElement<D extends IntegralDomainElement<D>> extends RingElement<D> {
+
+    /**
+     * {@code other}で割った商を返す。このインスタンスが{@code other}で割り切れる場合は厳密な商となる。
+     */
+    D divide(D other);
+
+}
@@ -0,0 +1,180 @@
+package number.algebra;
+
+import java.util.Arrays;
+
+/**
+ * 体を係数とする正方行列のLU分解 {@code PA = LU}。
+ *
+ * 一度分解しておけば、同じ係数行列に対する連立一次方程式を右辺を変えて繰り返し解くことができる。
+ */
+public final class LUDecomposition<F extends FieldElement<F>> {
+
+    private final Matrices<F> matrices;
+    private final F[] lu;
+    private final int[] permutation;
+    private final boolean oddPermutation;
+    private final int singularColumn;
+
+    private LUDecomposition(final Matrices<F> matrices, final F[] lu, final int[] permutation,
+            final boolean oddPermutation) {
+        this.matrices = matrices;
+        this.lu = lu;
+        this.permutation = permutation;
+        this.oddPermutation = oddPermutation;
+        final int n = permutation.length;
+        int singularColumn = -1;
+        for (int k = 0; k < n; k++) {
+            if (lu[k * n + k].isZero()) {
+                singularColumn = k;
+                break;
+            }
+        }
+        this.singularColumn = singularColumn;
+    }
+
+    public static <F extends FieldElement<F>> LUDecomposition<F> of(final Matrices<F>.Matrix matrix) {
+        final Matrices<F> matrices = matrix.matrices();
+        final int n = matrix.rowSize();
+        if (n != matrix.columnSize()) {
+            throw new AlgebraicException(
+                    "LU decomposition is defined only for square matrix: (" + n + ", " + matrix.columnSize() + ")");
+        }
+        final F[] lu = matrix.coefficients().clone();
+        final int[] permutation = new int[n];
+        final boolean odd = GaussianElimination.decompose(lu, n, permutation);
+        return new LUDecomposition<>(matrices, lu, permutation, odd);
+    }
+
+    public Matrices<F> matrices() {
+        return this.matrices;
+    }
+
+    public boolean isSingular() {
+        return this.singularColumn >= 0;
+    }
+
+    /**
+     * 分解後のi行目に対応する元の行番号を並べた配列。
+     */
+    public int[] permutation() {
+        return Arrays.copyOf(this.permutation, this.permutation.length);
+    }
+
+    public F determinant() {
+        final int n = this.permutation.length;
+        if (n == 0) {
+            throw new AlgebraicException("determinant of empty matrix is not supported");
+        }
+        if (this.isSingular()) {
+            return this.lu[0].subtract(this.lu[0]);
+        }
+        F determinant = this.lu[0];
+        for (int k = 1; k < n; k++) {
+            determinant = determinant.multiply(this.lu[k * n + k]);
+        }
+        return this.oddPermutation ? determinant.negate() : determinant;
+    }
+
+    /**
+     * {@code Ax = b}を解く。
+     *
+     * @throws AlgebraicException
+     *             係数行列が特異な場合
+     */
+    public VectorSpace<F>.Vector solve(final VectorSpace<F>.Vector b) {
+        final int n = this.permutation.length;
+        if (b.dim() != n) {
+            throw new IllegalArgumentException("vector has unmatch dimension: " + b.dim() + ", need: " + n);
+        }
+        this.checkNonSingular();
+        final F[] x = b.coefficients().clone();
+        this.solveInPlace(x, 1);
+        return b.space().wrap(x);
+    }
+
+    /**
+     * {@code AX = B}を解く。Bの各列を右辺とする方程式をまとめて解くことに等しい。
+     *
+     * @throws AlgebraicException
+     *             係数行列が特異な場合
+     */
+    public Matrices<F>.Matrix solve(final Matrices<F>.Matrix b) {
+        final int n = this.permutation.length;
+        if (b.rowSize() != n) {
+            throw new IllegalArgumentException("matrix has unmatch row size: " + b.rowSize() + ", need: " + n);
+        }
+        this.checkNonSingular();
+        final F[] x = b.coefficients().clone();
+        this.solveInPlace(x, b.columnSize());
+        return b.matrices().wrap(x);
+    }
+
+    /**
+     * 逆行列を返す。0×0の行列の逆行列は0×0の行列である。
+     *
+     * @throws AlgebraicException
+     *             係数行列が特異な場合
+     */
+    public Matrices<F>.Matrix inverse() {
+        this.checkNonSingular();
+        final int n = this.permutation.length;
+        if (n == 0) {
+            return this.matrices.wrap(this.matrices.newArray());
+        }
+        final F zero = this.lu[0].subtract(this.lu[0]);
+        final F one = this.lu[0].divide(this.lu[0]);
+        final F[] x = this.matrices.newArray();
+        Arrays.fill(x, zero);
+        for (int i = 0; i < n; i++) {
+            x[i * n + i] = one;
+        }
+        this.solveInPlace(x, n);
+        return this.matrices.wrap(x);
+    }
+
+    private void checkNonSingular() {
+        if (this.isSingular()) {
+            throw new AlgebraicException("matrix is singular");
+        }
+    }
+
+    /**
+     * n×columnsの右辺を、解で置き換える。
+     */
+    private void solveInPlace(final F[] b, final int columns) {
+        final int n = this.permutation.length;
+        final F[] permuted = b.clone();
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(permuted, this.permutation[i] * columns, b, i * columns, columns);
+        }
+        // Ly = Pb (Lの対角成分は1)
+        for (int i = 1; i < n; i++) {
+            for (int k = 0; k < i; k++) {
+                final F l = this.lu[i * n + k];
+                if (l.isZero()) {
+                    continue;
+                }
+                for (int j = 0; j < columns; j++) {
+                    b[i * columns + j] = b[i * columns + j].subtract(l.multiply(b[k * columns + j]));
+                }
+            }
+        }
+        // Ux = y
+        for (int i = n - 1; i >= 0; i--) {
+            for (int k = i + 1; k < n; k++) {
+                final F u = this.lu[i * n + k];
+                if (u.isZero()) {
+                    continue;
+                }
+                for (int j = 0; j < columns; j++) {
+                    b[i * columns + j] = b[i * columns + j].subtract(u.multiply(b[k * columns + j]));
+                }
+            }
+            final F inverse = this.lu[i * n + i].invert();
+            for (int j = 0; j < columns; j++) {
+                b[i * columns + j] = b[i * columns + j].multiply(inverse);
+            }
+        }
+    }
+
+}
@@ -2,66 +2,101 @@ package number.algebra;
 
 import java.lang.reflect.Array;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicReference;
 
-import utils.CacheMap;
-import utils.Tuple;
+import utils.ShapeRegistry;
 
 public class Matrices<R extends RingElement<R>> {
 
-    private static final CacheMap<Tuple<Class<?>, Tuple<Integer, Integer>>, Matrices<?>> CACHE = new CacheMap<>();
+    private static final ClassValue<ShapeRegistry<Matrices<?>>> REGISTRY = new ClassValue<ShapeRegistry<Matrices<?>>>() {
+        @Override
+        protected ShapeRegistry<Matrices<?>> computeValue(final Class<?> coefficientClass) {
+            return new ShapeRegistry<>(32, 32,
+                    (rowSize, columnSize) -> newInstance(coefficientClass, rowSize, columnSize));
+        }
+    };
 
     private final Class<R> coefficientClass;
-    private final Class<R[]> rowArrayClass;
     private final int rowSize;
     private final int columnSize;
 
     private Matrices(final Class<R> coefficientClass, final int rowSize, final int columnSize) {
         this.coefficientClass = coefficientClass;
-        @SuppressWarnings("unchecked")
-        final Class<R[]> rowArrayClass = (Class<R[]>) Array.newInstance(coefficientClass, 0).getClass();
-        this.rowArrayClass = rowArrayClass;
         this.columnSize = columnSize;
         this.rowSize = rowSize;
     }
 
+    public int rowSize() {
+        return this.rowSize;
+    }
+
+    public int columnSize() {
+        return this.columnSize;
+    }
+
     public Matrix getWith(final R[][] coeffs) {
-        @SuppressWarnings("unchecked")
-        final R[][] defensiveCopy = (R[][]) Array.newInstance(this.rowArrayClass, coeffs.length);
         if (coeffs.length != this.rowSize) {
             throw new IllegalArgumentException(
                     "coefficients has unmatch row size: " + coeffs.length + ", need: " + this.rowSize);
         }
+        final R[] defensiveCopy = this.newArray();
         for (int idx = 0; idx < rowSize; idx++) {
             R[] row = coeffs[idx];
             if (row.length != this.columnSize) {
                 throw new IllegalArgumentException("coefficients has row " + idx + " that has unmmatch column size: "
                         + row.length + ", need: " + this.columnSize);
             }
-            defensiveCopy[idx] = Arrays.copyOf(row, row.length);
+            System.arraycopy(row, 0, defensiveCopy, idx * this.columnSize, this.columnSize);
         }
-        return new Matrix(this, defensiveCopy);
+        return this.wrap(defensiveCopy);
+    }
+
+    /**
+     * 行優先で並べた係数配列から行列を得る。配列の検査・複製は行わないため、
+     * 外部から参照できない(このライブラリ内で作成した)配列のみ渡すこと。
+     */
+    Matrix wrap(final R[] coeffs) {
+        return new Matrix(this, coeffs, 0, this.columnSize, 1);
+    }
+
+    /**
+     * 配列を共有するビュー。(i, j)成分は{@code data[offset + i * rowStride + j * columnStride]}である。
+     */
+    private Matrix view(final R[] data, final int offset, final int rowStride, final int columnStride) {
+        return new Matrix(this, data, offset, rowStride, columnStride);
+    }
+
+    /**
+     * この行列の係数を行優先で保持する配列を新たに作成する。
+     */
+    R[] newArray() {
+        return newArray(this.coefficientClass, this.rowSize * this.columnSize);
+    }
+
+    static <R> R[] newArray(final Class<R> coefficientClass, final int length) {
+        @SuppressWarnings("unchecked")
+        final R[] array = (R[]) Array.newInstance(coefficientClass, length);
+        return array;
+    }
+
+    static <R extends RingElement<R>> Accumulator<R>[] newAccumulatorArray(final int length) {
+        @SuppressWarnings("unchecked")
+        final Accumulator<R>[] array = (Accumulator<R>[]) new Accumulator<?>[length];
+        return array;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Matrices<?> newInstance(final Class<?> coefficientClass, final int rowSize,
+            final int columnSize) {
+        return new Matrices(coefficientClass, rowSize, columnSize);
     }
 
     public static <R extends RingElement<R>> Matrices<R> of(final Class<R> coefficientClass, final int rowSize,
             final int columnSize) {
-        final Tuple<Integer, Integer> size = Tuple.of(rowSize, columnSize);
-        final Tuple<Class<?>, Tuple<Integer, Integer>> key = Tuple.of(coefficientClass, size);
-        final Matrices<?> cachedVal = CACHE.get(key);
-        if (cachedVal != null && cachedVal.coefficientClass == coefficientClass) {
-            @SuppressWarnings("unchecked")
-            Matrices<R> ret = (Matrices<R>) cachedVal;
-            return ret;
-        }
-        Matrices<?> newInstance = new Matrices<>(coefficientClass, rowSize, columnSize);
-        Matrices<?> isAbsent = CACHE.putIfAbsent(key, newInstance);
-        if (isAbsent != null) {
-            @SuppressWarnings("unchecked")
-            Matrices<R> registerdByOtherThread = (Matrices<R>) isAbsent;
-            return registerdByOtherThread;
-        }
         @SuppressWarnings("unchecked")
-        Matrices<R> ret = (Matrices<R>) newInstance;
+        final Matrices<R> ret = (Matrices<R>) REGISTRY.get(coefficientClass).get(rowSize, columnSize);
         return ret;
     }
 
@@ -85,6 +120,277 @@ public class Matrices<R extends RingElement<R>> {
 
     }
 
+    /**
+     * ブロックを縦横に並べた行列を作る。{@code blocks.get(i).get(j)}が(i, j)ブロックであり、
+     * 同じブロック行の行数、同じブロック列の列数は等しくなければならない。
+     * 1つの配列に並べる必要があるため各ブロックの係数は一度だけ複製する。
+     * ブロックに分けて扱う場合は逆に{@link Matrix#submatrix}で複製せずに取り出せる。
+     */
+    public static <R extends RingElement<R>> Matrices<R>.Matrix createMatrixWithBlocks(
+            final List<? extends List<? extends Matrices<R>.Matrix>> blocks) {
+        if (blocks.isEmpty() || blocks.get(0).isEmpty()) {
+            throw new IllegalArgumentException("blocks must not be empty");
+        }
+        final int blockColumns = blocks.get(0).size();
+        final Class<R> coefficientClass = blocks.get(0).get(0).matrices().coefficientClass;
+        final int[] rowOffsets = new int[blocks.size() + 1];
+        final int[] columnOffsets = new int[blockColumns + 1];
+        for (int bj = 0; bj < blockColumns; bj++) {
+            columnOffsets[bj + 1] = columnOffsets[bj] + blocks.get(0).get(bj).matrices().columnSize;
+        }
+        for (int bi = 0; bi < blocks.size(); bi++) {
+            final List<? extends Matrices<R>.Matrix> blockRow = blocks.get(bi);
+            if (blockRow.size() != blockColumns) {
+                throw new IllegalArgumentException(
+                        "block row " + bi + " has " + blockRow.size() + " blocks, need: " + blockColumns);
+            }
+            final int rows = blockRow.get(0).matrices().rowSize;
+            for (int bj = 0; bj < blockColumns; bj++) {
+                final Matrices<R> matrices = blockRow.get(bj).matrices();
+                if (matrices.coefficientClass != coefficientClass) {
+                    throw new IllegalArgumentException("block cannot be composed with different coefficient class "
+                            + matrices.coefficientClass.getCanonicalName() + " != "
+                            + coefficientClass.getCanonicalName());
+                }
+                if (matrices.rowSize != rows
+                        || matrices.columnSize != columnOffsets[bj + 1] - columnOffsets[bj]) {
+                    throw new IllegalArgumentException("block (" + bi + ", " + bj + ") has unmatch size ("
+                            + matrices.rowSize + ", " + matrices.columnSize + "), need: (" + rows + ", "
+                            + (columnOffsets[bj + 1] - columnOffsets[bj]) + ")");
+                }
+            }
+            rowOffsets[bi + 1] = rowOffsets[bi] + rows;
+        }
+
+        final Matrices<R> matrices = of(coefficientClass, rowOffsets[blocks.size()], columnOffsets[blockColumns]);
+        final R[] coeffs = matrices.newArray();
+        for (int bi = 0; bi < blocks.size(); bi++) {
+            for (int bj = 0; bj < blockColumns; bj++) {
+                final Matrices<R>.Matrix block = blocks.get(bi).get(bj);
+                for (int i = 0; i < block.matrices.rowSize; i++) {
+                    final int row = (rowOffsets[bi] + i) * matrices.columnSize + columnOffsets[bj];
+                    for (int j = 0; j < block.matrices.columnSize; j++) {
+                        coeffs[row + j] = block.at(i, j);
+                    }
+                }
+            }
+        }
+        return matrices.wrap(coeffs);
+    }
+
+    /**
+     * 行列積をStrassen-Winogradの方法で計算する行数・列数の下限。
+     * 既定値はシステムプロパティ{@code number.algebra.Matrices.multiply.strassenThreshold}(未指定時は128)。
+     */
+    public static int strassenThreshold() {
+        return MatrixMultiplication.strassenThreshold();
+    }
+
+    public static void setStrassenThreshold(final int threshold) {
+        MatrixMultiplication.setStrassenThreshold(threshold);
+    }
+
+    /**
+     * 行列積のブロック分割の大きさ。
+     * 既定値はシステムプロパティ{@code number.algebra.Matrices.multiply.blockSize}(未指定時は64)。
+     */
+    public static int multiplyBlockSize() {
+        return MatrixMultiplication.blockSize();
+    }
+
+    public static void setMultiplyBlockSize(final int size) {
+        MatrixMultiplication.setBlockSize(size);
+    }
+
+    /**
+     * {@code *Parallel}系の演算を実行する{@link ForkJoinPool}。既定値は{@link ForkJoinPool#commonPool()}。
+     */
+    public static ForkJoinPool parallelPool() {
+        return ParallelMatrixOperations.pool();
+    }
+
+    public static void setParallelPool(final ForkJoinPool pool) {
+        ParallelMatrixOperations.setPool(pool);
+    }
+
+    /**
+     * {@code *Parallel}系の演算で分割をやめて逐次実行する作業量(係数の演算回数の目安)。
+     * 既定値はシステムプロパティ{@code number.algebra.Matrices.parallel.threshold}(未指定時は4096)。
+     */
+    public static int parallelThreshold() {
+        return ParallelMatrixOperations.threshold();
+    }
+
+    public static void setParallelThreshold(final int threshold) {
+        ParallelMatrixOperations.setThreshold(threshold);
+    }
+
+    private static volatile double sparseThreshold = Double.parseDouble(
+            System.getProperty("number.algebra.Matrices.multiply.sparseThreshold", "0.1"));
+
+    /**
+     * 行列積で左側の行列の0でない成分の割合がこの値以下なら、{@link SparseMatrix}に変換して0の成分との積を省く。
+     * 既定値はシステムプロパティ{@code number.algebra.Matrices.multiply.sparseThreshold}(未指定時は0.1)。
+     */
+    public static double sparseThreshold() {
+        return sparseThreshold;
+    }
+
+    public static void setSparseThreshold(final double threshold) {
+        if (!(0.0 <= threshold && threshold <= 1.0)) {
+            throw new IllegalArgumentException("sparse threshold must be in [0, 1]: " + threshold);
+        }
+        sparseThreshold = threshold;
+    }
+
+    private static volatile MatrixResultCache resultCache = defaultResultCache();
+
+    private static MatrixResultCache defaultResultCache() {
+        final int maximumSize = Integer.getInteger("number.algebra.Matrices.resultCache.maximumSize", 0);
+        return maximumSize > 0 ? new MatrixResultCache(maximumSize) : null;
+    }
+
+    /**
+     * 行列積、冪、行列式、逆行列の結果を保持するキャッシュ。nullならキャッシュしない。
+     * 既定値はシステムプロパティ{@code number.algebra.Matrices.resultCache.maximumSize}が正ならその件数を上限とするキャッシュ、
+     * 未指定ならnull。
+     */
+    public static MatrixResultCache resultCache() {
+        return resultCache;
+    }
+
+    public static void setResultCache(final MatrixResultCache cache) {
+        resultCache = cache;
+    }
+
+    Class<R> coefficientClass() {
+        return this.coefficientClass;
+    }
+
+    /**
+     * 行列の構造の種類。{@link Matrix#structure()}は当てはまるもののうち最も限定的なものを返す。
+     */
+    public enum Structure {
+        /** すべての成分が0 */
+        ZERO,
+        /** 単位行列 */
+        IDENTITY,
+        /** 対角成分以外が0の正方行列 */
+        DIAGONAL,
+        /** 各行・各列にちょうど1つだけ1があり、他は0の正方行列 */
+        PERMUTATION,
+        /** 対角成分より下が0の正方行列 */
+        UPPER_TRIANGULAR,
+        /** 対角成分より上が0の正方行列 */
+        LOWER_TRIANGULAR,
+        /** 上のいずれでもない */
+        GENERAL
+    }
+
+    private Matrix wrap(final R[] coeffs, final Structure structure) {
+        final Matrix matrix = this.wrap(coeffs);
+        // まだ他のスレッドからは参照できないので直接setしてよい
+        matrix.structure.set(structure);
+        return matrix;
+    }
+
+    private void checkSquare(final String kind) {
+        if (this.rowSize != this.columnSize) {
+            throw new AlgebraicException(
+                    kind + " matrix must be square: (" + this.rowSize + ", " + this.columnSize + ")");
+        }
+    }
+
+    /**
+     * 零行列。
+     *
+     * @param zero
+     *            係数の環の零元
+     */
+    public Matrix zero(final R zero) {
+        final R[] coeffs = this.newArray();
+        Arrays.fill(coeffs, zero);
+        return this.wrap(coeffs, Structure.ZERO);
+    }
+
+    /**
+     * 単位行列。
+     *
+     * @param one
+     *            係数の環の単位元
+     * @throws AlgebraicException
+     *             正方行列でない場合
+     */
+    public Matrix identity(final R one) {
+        this.checkSquare("identity");
+        final R[] coeffs = this.newArray();
+        Arrays.fill(coeffs, one.subtract(one));
+        for (int i = 0; i < this.rowSize; i++) {
+            coeffs[i * this.columnSize + i] = one;
+        }
+        return this.wrap(coeffs, this.rowSize == 0 ? Structure.ZERO : Structure.IDENTITY);
+    }
+
+    /**
+     * 対角成分が{@code diagonal}の対角行列。
+     *
+     * @throws AlgebraicException
+     *             正方行列でない場合
+     */
+    public Matrix diagonal(final R[] diagonal) {
+        this.checkSquare("diagonal");
+        if (diagonal.length != this.rowSize) {
+            throw new IllegalArgumentException(
+                    "diagonal has unmatch length: " + diagonal.length + ", need: " + this.rowSize);
+        }
+        final R[] coeffs = this.newArray();
+        if (coeffs.length == 0) {
+            return this.wrap(coeffs, Structure.ZERO);
+        }
+        Arrays.fill(coeffs, diagonal[0].subtract(diagonal[0]));
+        for (int i = 0; i < this.rowSize; i++) {
+            coeffs[i * this.columnSize + i] = diagonal[i];
+        }
+        // 対角成分の値によっては単位行列や零行列になるので構造は改めて判定する
+        return this.wrap(coeffs);
+    }
+
+    /**
+     * i行目の{@code permutation[i]}列目が1の置換行列。左から掛けると行を、右から掛けると列を並べ替える。
+     *
+     * @param one
+     *            係数の環の単位元
+     * @throws AlgebraicException
+     *             正方行列でない場合
+     * @throws IllegalArgumentException
+     *             {@code permutation}が{@code 0}から{@code n - 1}の並べ替えでない場合
+     */
+    public Matrix permutation(final R one, final int... permutation) {
+        this.checkSquare("permutation");
+        if (permutation.length != this.rowSize) {
+            throw new IllegalArgumentException(
+                    "permutation has unmatch length: " + permutation.length + ", need: " + this.rowSize);
+        }
+        final boolean[] used = new boolean[this.rowSize];
+        boolean identity = true;
+        for (int i = 0; i < permutation.length; i++) {
+            final int j = permutation[i];
+            if (j < 0 || this.rowSize <= j || used[j]) {
+                throw new IllegalArgumentException("not a permutation: " + Arrays.toString(permutation));
+            }
+            used[j] = true;
+            identity &= i == j;
+        }
+        final R[] coeffs = this.newArray();
+        Arrays.fill(coeffs, one.subtract(one));
+        for (int i = 0; i < this.rowSize; i++) {
+            coeffs[i * this.columnSize + permutation[i]] = one;
+        }
+        final Structure structure = this.rowSize == 0 ? Structure.ZERO
+                : identity ? Structure.IDENTITY : Structure.PERMUTATION;
+        return this.wrap(coeffs, structure);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == null) {
@@ -93,27 +399,54 @@ public class Matrices<R extends RingElement<R>> {
         if (this == obj) {
             return true;
         }
-        if (!(obj instanceof VectorSpace)) {
+        if (!(obj instanceof Matrices)) {
             return false;
         }
         @SuppressWarnings("rawtypes")
         final Matrices other = (Matrices) obj;
         return this.coefficientClass == other.coefficientClass //
-                && this.rowArrayClass == other.rowArrayClass //
                 && this.columnSize == other.columnSize //
                 && this.rowSize == other.rowSize;
     }
 
+    @Override
+    public int hashCode() {
+        // レジストリのsoft参照が解放されると同じ形のインスタンスが作り直されるため、同一性ではなく形から求める
+        return (this.coefficientClass.hashCode() * 31 + this.rowSize) * 31 + this.columnSize;
+    }
+
     public class Matrix implements ModuleElement<Matrix, R> {
         private final Matrices<R> matrices;
-        private final R[][] coeffs;
+        /**
+         * 係数を保持する配列。(i, j)成分は{@code data[offset + i * rowStride + j * columnStride]}にある。
+         * 転置や部分行列のビューでは他の行列と共有する。
+         */
+        private final R[] data;
+        private final int offset;
+        private final int rowStride;
+        private final int columnStride;
+        /** dataが行優先で詰まった係数配列そのものであるか */
+        private final boolean contiguous;
+        /** contiguousでない場合に、行優先で詰め直した係数配列 */
+        private final AtomicReference<R[]> compact = new AtomicReference<>();
         private final AtomicReference<Matrix> negate = new AtomicReference<>();
         private final AtomicReference<Integer> hashCode = new AtomicReference<>();
         private final AtomicReference<String> toString = new AtomicReference<>();
+        private final AtomicReference<Structure> structure = new AtomicReference<>();
+        /** 0でない成分の個数。sparseThresholdは変更されうるため、判定結果ではなく個数を保持する */
+        private final AtomicReference<Long> nonZeroCount = new AtomicReference<>();
+        private final AtomicReference<SparseMatrix<R>> sparse = new AtomicReference<>();
 
-        private Matrix(final Matrices<R> matrices, final R[][] coeffs) {
+        private Matrix(final Matrices<R> matrices, final R[] data, final int offset, final int rowStride,
+                final int columnStride) {
             this.matrices = matrices;
-            this.coeffs = coeffs;
+            this.data = data;
+            this.offset = offset;
+            this.rowStride = rowStride;
+            this.columnStride = columnStride;
+            this.contiguous = offset == 0 && data.length == matrices.rowSize * matrices.columnSize
+                    && (matrices.rowSize <= 1 || rowStride == matrices.columnSize)
+                    && (matrices.columnSize <= 1 || columnStride == 1);
         }
 
         public Matrices<R> matrices() {
@@ -128,6 +461,100 @@ public class Matrices<R extends RingElement<R>> {
             return this.matrices.columnSize;
         }
 
+        public R get(final int row, final int column) {
+            if (row < 0 || this.matrices.rowSize <= row || column < 0 || this.matrices.columnSize <= column) {
+                throw new IndexOutOfBoundsException("(" + row + ", " + column + ") is out of (" + this.matrices.rowSize
+                        + ", " + this.matrices.columnSize + ")");
+            }
+            return this.at(row, column);
+        }
+
+        private R at(final int row, final int column) {
+            return this.data[this.offset + row * this.rowStride + column * this.columnStride];
+        }
+
+        /**
+         * 行優先で並べた係数配列を返す。呼び出し側で書き換えないこと。
+         * ビューでは初回に詰め直した配列を作って保持する。
+         */
+        R[] coefficients() {
+            if (this.contiguous) {
+                return this.data;
+            }
+            if (this.compact.get() == null) {
+                final R[] coeffs = this.matrices.newArray();
+                final int columns = this.matrices.columnSize;
+                for (int i = 0; i < this.matrices.rowSize; i++) {
+                    for (int j = 0; j < columns; j++) {
+                        coeffs[i * columns + j] = this.at(i, j);
+                    }
+                }
+                this.compact.compareAndSet(null, coeffs);
+            }
+            return this.compact.get();
+        }
+
+        /**
+         * 転置行列。係数配列を共有し、添字の対応だけを入れ替える。
+         */
+        public Matrix transpose() {
+            final Matrices<R> transposed = of(this.matrices.coefficientClass, this.matrices.columnSize,
+                    this.matrices.rowSize);
+            final Matrix view = transposed.view(this.data, this.offset, this.columnStride, this.rowStride);
+            final Structure structure = this.structure.get();
+            if (structure != null) {
+                // まだ他のスレッドからは参照できないので直接setしてよい
+                view.structure.set(structure == Structure.UPPER_TRIANGULAR ? Structure.LOWER_TRIANGULAR
+                        : structure == Structure.LOWER_TRIANGULAR ? Structure.UPPER_TRIANGULAR : structure);
+            }
+            return view;
+        }
+
+        /**
+         * 行{@code [fromRow, toRow)}、列{@code [fromColumn, toColumn)}の部分行列。係数配列を共有する。
+         */
+        public Matrix submatrix(final int fromRow, final int toRow, final int fromColumn, final int toColumn) {
+            if (fromRow < 0 || toRow < fromRow || this.matrices.rowSize < toRow || fromColumn < 0
+                    || toColumn < fromColumn || this.matrices.columnSize < toColumn) {
+                throw new IndexOutOfBoundsException("[" + fromRow + ", " + toRow + ") x [" + fromColumn + ", "
+                        + toColumn + ") is out of (" + this.matrices.rowSize + ", " + this.matrices.columnSize + ")");
+            }
+            final Matrices<R> sub = of(this.matrices.coefficientClass, toRow - fromRow, toColumn - fromColumn);
+            return sub.view(this.data, this.offset + fromRow * this.rowStride + fromColumn * this.columnStride,
+                    this.rowStride, this.columnStride);
+        }
+
+        /**
+         * row行目を表すベクトル。係数配列を共有する。
+         *
+         * @param coefficientClass
+         *            この行列の係数のクラス
+         */
+        public <F extends FieldElement<F>> VectorSpace<F>.Vector row(final int row, final Class<F> coefficientClass) {
+            if (row < 0 || this.matrices.rowSize <= row) {
+                throw new IndexOutOfBoundsException(row + " is out of " + this.matrices.rowSize);
+            }
+            final Matrices<F>.Matrix self = this.asMatrixOf(coefficientClass);
+            return VectorSpace.of(coefficientClass, this.matrices.columnSize).view(self.data,
+                    self.offset + row * self.rowStride, self.columnStride);
+        }
+
+        /**
+         * column列目を表すベクトル。係数配列を共有する。
+         *
+         * @param coefficientClass
+         *            この行列の係数のクラス
+         */
+        public <F extends FieldElement<F>> VectorSpace<F>.Vector column(final int column,
+                final Class<F> coefficientClass) {
+            if (column < 0 || this.matrices.columnSize <= column) {
+                throw new IndexOutOfBoundsException(column + " is out of " + this.matrices.columnSize);
+            }
+            final Matrices<F>.Matrix self = this.asMatrixOf(coefficientClass);
+            return VectorSpace.of(coefficientClass, this.matrices.rowSize).view(self.data,
+                    self.offset + column * self.columnStride, self.rowStride);
+        }
+
         private void checkAndThrow(final Matrix other) {
             if (!this.matrices().equals(other.matrices())) {
                 if (this.matrices().coefficientClass != other.matrices().coefficientClass) {
@@ -144,30 +571,25 @@ public class Matrices<R extends RingElement<R>> {
         @Override
         public Matrix add(final Matrices<R>.Matrix other) {
             checkAndThrow(other);
-            @SuppressWarnings("unchecked")
-            final R[][] newCoeffs = (R[][]) Array.newInstance(this.matrices.rowArrayClass, this.matrices.rowSize);
-            for (int i = 0; i < this.matrices.rowSize; i++) {
-                newCoeffs[i] = Arrays.copyOf(this.coeffs[i], this.coeffs[i].length);
-                for (int j = 0; j < this.matrices.columnSize; j++) {
-                    newCoeffs[i][j] = newCoeffs[i][j].add(other.coeffs[i][j]);
-                }
+            final R[] a = this.coefficients();
+            final R[] b = other.coefficients();
+            final R[] newCoeffs = this.matrices.newArray();
+            for (int idx = 0; idx < newCoeffs.length; idx++) {
+                newCoeffs[idx] = a[idx].add(b[idx]);
             }
-            return getWith(newCoeffs);
+            return this.matrices.wrap(newCoeffs);
         }
 
         @Override
         public Matrix negate() {
             if (this.negate.get() == null) {
-                @SuppressWarnings("unchecked")
-                final R[][] newCoeffs = (R[][]) Array.newInstance(this.matrices.rowArrayClass, this.matrices.rowSize);
-                for (int i = 0; i < this.matrices.rowSize; i++) {
-                    newCoeffs[i] = Arrays.copyOf(this.coeffs[i], this.coeffs[i].length);
-                    for (int j = 0; j < this.matrices.columnSize; j++) {
-                        newCoeffs[i][j] = newCoeffs[i][j].negate();
-                    }
+                final R[] a = this.coefficients();
+                final R[] newCoeffs = this.matrices.newArray();
+                for (int idx = 0; idx < newCoeffs.length; idx++) {
+                    newCoeffs[idx] = a[idx].negate();
                 }
 
-                final Matrix negate = getWith(newCoeffs);
+                final Matrix negate = this.matrices.wrap(newCoeffs);
                 // まだ他のスレッドからは参照できないので直接setしてよい
                 negate.negate.set(this);
 
@@ -183,72 +605,604 @@ public class Matrices<R extends RingElement<R>> {
         @Override
         public Matrix subtract(final Matrices<R>.Matrix other) {
             checkAndThrow(other);
-            @SuppressWarnings("unchecked")
-            final R[][] newCoeffs = (R[][]) Array.newInstance(this.matrices.rowArrayClass, this.matrices.rowSize);
-            for (int i = 0; i < this.matrices.rowSize; i++) {
-                newCoeffs[i] = Arrays.copyOf(this.coeffs[i], this.coeffs[i].length);
-                for (int j = 0; j < this.matrices.columnSize; j++) {
-                    newCoeffs[i][j] = newCoeffs[i][j].subtract(other.coeffs[i][j]);
-                }
+            final R[] a = this.coefficients();
+            final R[] b = other.coefficients();
+            final R[] newCoeffs = this.matrices.newArray();
+            for (int idx = 0; idx < newCoeffs.length; idx++) {
+                newCoeffs[idx] = a[idx].subtract(b[idx]);
             }
-            return getWith(newCoeffs);
+            return this.matrices.wrap(newCoeffs);
         }
 
         @Override
         public boolean isZero() {
-            for (int i = 0; i < this.matrices.rowSize; i++) {
-                for (int j = 0; j < this.matrices.columnSize; j++) {
-                    if (!this.coeffs[i][j].isZero()) {
-                        return false;
-                    }
+            for (final R coeff : this.coefficients()) {
+                if (!coeff.isZero()) {
+                    return false;
                 }
             }
             return true;
         }
 
-        @Override
-        public Matrix scalarMultiply(final R scalar) {
-            @SuppressWarnings("unchecked")
-            final R[][] newCoeffs = (R[][]) Array.newInstance(this.matrices.rowArrayClass, this.matrices.rowSize);
-            for (int i = 0; i < this.matrices.rowSize; i++) {
-                newCoeffs[i] = Arrays.copyOf(this.coeffs[i], this.coeffs[i].length);
-                for (int j = 0; j < this.matrices.columnSize; j++) {
-                    newCoeffs[i][j] = newCoeffs[i][j].multiply(scalar);
+        /**
+         * この行列の構造のうち最も限定的なもの。初回に全成分を走査して判定し、結果を保持する。
+         */
+        public Structure structure() {
+            if (this.structure.get() == null) {
+                this.structure.compareAndSet(null, this.detectStructure());
+            }
+            return this.structure.get();
+        }
+
+        private Structure detectStructure() {
+            final int rows = this.matrices.rowSize;
+            final int columns = this.matrices.columnSize;
+            final boolean square = rows == columns;
+            boolean zero = true;
+            boolean upper = square;
+            boolean lower = square;
+            boolean unitDiagonal = square;
+            boolean permutation = square;
+            final int[] columnCounts = new int[columns];
+            for (int i = 0; i < rows; i++) {
+                int rowCount = 0;
+                for (int j = 0; j < columns; j++) {
+                    final R coeff = this.at(i, j);
+                    if (coeff.isZero()) {
+                        if (i == j) {
+                            unitDiagonal = false;
+                        }
+                        continue;
+                    }
+                    zero = false;
+                    if (j < i) {
+                        upper = false;
+                    } else if (i < j) {
+                        lower = false;
+                    } else if (!coeff.isOne()) {
+                        unitDiagonal = false;
+                    }
+                    if (permutation && (!coeff.isOne() || ++rowCount > 1 || ++columnCounts[j] > 1)) {
+                        permutation = false;
+                    }
+                }
+                if (rowCount == 0) {
+                    permutation = false;
                 }
             }
-            return getWith(newCoeffs);
+            if (zero) {
+                return Structure.ZERO;
+            }
+            if (upper && lower) {
+                return unitDiagonal ? Structure.IDENTITY : Structure.DIAGONAL;
+            }
+            if (permutation) {
+                return Structure.PERMUTATION;
+            }
+            if (upper) {
+                return Structure.UPPER_TRIANGULAR;
+            }
+            if (lower) {
+                return Structure.LOWER_TRIANGULAR;
+            }
+            return Structure.GENERAL;
         }
 
-        public Matrix multiply(Matrix other) {
-            if (this.matrices.columnSize != other.matrices.rowSize) {
-                throw new IllegalArgumentException("not multiplicatable matrix this has column size "
-                        + this.matrices.columnSize + ", but other matrix has row size " + other.matrices.rowSize
-                        + "(other must have row size equal to this column size)");
+        /**
+         * 一方が構造を持つ行列の場合の積。該当しない場合はnull。
+         */
+        private Matrix multiplyStructured(final Matrix other, final Matrices<R> resultsMatrices) {
+            final Structure left = this.structure();
+            final Structure right = other.structure();
+            if (left == Structure.GENERAL && right == Structure.GENERAL) {
+                return null;
+            }
+            if (left == Structure.IDENTITY) {
+                return other;
+            }
+            if (right == Structure.IDENTITY) {
+                return this;
+            }
+            final int m = this.matrices.rowSize;
+            final int inner = this.matrices.columnSize;
+            final int n = other.matrices.columnSize;
+            if (m == 0 || inner == 0 || n == 0) {
+                return null;
+            }
+            final R[] a = this.coefficients();
+            final R[] b = other.coefficients();
+            final R[] c = resultsMatrices.newArray();
+            if (left == Structure.ZERO || right == Structure.ZERO) {
+                final R zero = left == Structure.ZERO ? a[0] : b[0];
+                Arrays.fill(c, zero);
+                return resultsMatrices.wrap(c, Structure.ZERO);
+            }
+            if (left == Structure.PERMUTATION) {
+                // 行の並べ替え。係数の演算は行わない
+                for (int i = 0; i < m; i++) {
+                    int k = 0;
+                    while (a[i * inner + k].isZero()) {
+                        k++;
+                    }
+                    System.arraycopy(b, k * n, c, i * n, n);
+                }
+                return resultsMatrices.wrap(c);
+            }
+            if (right == Structure.PERMUTATION) {
+                // 列の並べ替え。j列目にはotherのj列目で1のある行番号の列が来る
+                final int[] source = new int[n];
+                for (int k = 0; k < inner; k++) {
+                    for (int j = 0; j < n; j++) {
+                        if (!b[k * n + j].isZero()) {
+                            source[j] = k;
+                        }
+                    }
+                }
+                for (int i = 0; i < m; i++) {
+                    for (int j = 0; j < n; j++) {
+                        c[i * n + j] = a[i * inner + source[j]];
+                    }
+                }
+                return resultsMatrices.wrap(c);
+            }
+            if (left == Structure.DIAGONAL) {
+                // 行のスケーリング
+                for (int i = 0; i < m; i++) {
+                    final R d = a[i * inner + i];
+                    for (int j = 0; j < n; j++) {
+                        c[i * n + j] = d.multiply(b[i * n + j]);
+                    }
+                }
+                return resultsMatrices.wrap(c);
             }
+            if (right == Structure.DIAGONAL) {
+                // 列のスケーリング
+                for (int i = 0; i < m; i++) {
+                    for (int j = 0; j < n; j++) {
+                        c[i * n + j] = a[i * inner + j].multiply(b[j * n + j]);
+                    }
+                }
+                return resultsMatrices.wrap(c);
+            }
+            final boolean upper = left == Structure.UPPER_TRIANGULAR && right == Structure.UPPER_TRIANGULAR;
+            final boolean lower = left == Structure.LOWER_TRIANGULAR && right == Structure.LOWER_TRIANGULAR;
+            if (upper || lower) {
+                // 三角行列同士の積は三角行列で、(i, j)成分はkがiとjの間の項だけの和になる
+                final R zero = a[0].subtract(a[0]);
+                for (int i = 0; i < m; i++) {
+                    for (int j = 0; j < n; j++) {
+                        if (upper ? j < i : i < j) {
+                            c[i * n + j] = zero;
+                            continue;
+                        }
+                        final int from = Math.min(i, j);
+                        final int to = Math.max(i, j);
+                        final Accumulator<R> sum = a[i * inner + from].multiply(b[from * n + j])
+                                .accumulator();
+                        for (int k = from + 1; k <= to; k++) {
+                            sum.addProduct(a[i * inner + k], b[k * n + j]);
+                        }
+                        c[i * n + j] = sum.result();
+                    }
+                }
+                return resultsMatrices.wrap(c);
+            }
+            return null;
+        }
 
-            Matrices<R> resultsMatrices = of(this.matrices.coefficientClass, this.matrices.rowSize,
-                    other.matrices.columnSize);
+        /**
+         * 0でない成分の割合が{@link Matrices#sparseThreshold()}以下か。成分の走査は最初の1回だけ行う。
+         */
+        private boolean isSparse() {
+            final int rows = this.matrices.rowSize;
+            final int columns = this.matrices.columnSize;
+            if (rows == 0 || columns == 0) {
+                return false;
+            }
+            return this.nonZeroCount() <= (long) (sparseThreshold * rows * columns);
+        }
 
-            @SuppressWarnings("unchecked")
-            R[][] resultsCoeffs = (R[][]) Array.newInstance(resultsMatrices.coefficientClass, resultsMatrices.rowSize,
-                    resultsMatrices.columnSize);
-
-            for (int i = 0; i < resultsMatrices.rowSize; i++) {
-                for (int j = 0; j < resultsMatrices.columnSize; j++) {
-                    R sum = null;
-                    for (int k = 0; k < this.matrices.columnSize; k++) {
-                        if (sum == null) {
-                            sum = this.coeffs[i][k].multiply(other.coeffs[k][j]);
-                        } else {
-                            sum = sum.add(this.coeffs[i][k].multiply(other.coeffs[k][j]));
+        private long nonZeroCount() {
+            if (this.nonZeroCount.get() == null) {
+                final SparseMatrix<R> cached = this.sparse.get();
+                long nonZero = 0;
+                if (cached != null) {
+                    nonZero = cached.nonZeroCount();
+                } else {
+                    for (int i = 0; i < this.matrices.rowSize; i++) {
+                        for (int j = 0; j < this.matrices.columnSize; j++) {
+                            if (!this.at(i, j).isZero()) {
+                                nonZero++;
+                            }
                         }
                     }
-                    resultsCoeffs[i][j] = sum;
                 }
+                this.nonZeroCount.compareAndSet(null, nonZero);
+            }
+            return this.nonZeroCount.get().longValue();
+        }
+
+        /**
+         * この行列を葉とする遅延評価の式。成分ごとの演算を続けて行う場合に途中の行列を作らずに済む。
+         */
+        public MatrixExpression<R> lazy() {
+            return MatrixExpression.of(this);
+        }
+
+        /**
+         * 0でない成分だけを保持する{@link SparseMatrix}に変換する。変換結果は保持し、2回目以降は同じものを返す。
+         */
+        public SparseMatrix<R> toSparse() {
+            if (this.sparse.get() == null) {
+                this.sparse.compareAndSet(null, SparseMatrix.of(this));
+            }
+            return this.sparse.get();
+        }
+
+        @Override
+        public Matrix scalarMultiply(final R scalar) {
+            final R[] a = this.coefficients();
+            final R[] newCoeffs = this.matrices.newArray();
+            for (int idx = 0; idx < newCoeffs.length; idx++) {
+                newCoeffs[idx] = a[idx].multiply(scalar);
+            }
+            return this.matrices.wrap(newCoeffs);
+        }
+
+        public Matrix multiply(Matrix other) {
+            return this.multiply(other, resultCache);
+        }
+
+        /**
+         * 行列積。構造を持つ行列の積は{@code cache}を使わずに計算する。
+         */
+        private Matrix multiply(final Matrix other, final MatrixResultCache cache) {
+            final Matrices<R> resultsMatrices = this.productMatrices(other);
+            final Matrix structured = this.multiplyStructured(other, resultsMatrices);
+            if (structured != null) {
+                return structured;
+            }
+            if (cache != null) {
+                return cache.computeIfAbsent(MatrixResultCache.Operation.MULTIPLY, this, other,
+                        () -> this.multiplyGeneral(other, resultsMatrices));
+            }
+            return this.multiplyGeneral(other, resultsMatrices);
+        }
+
+        private Matrix multiplyGeneral(final Matrix other, final Matrices<R> resultsMatrices) {
+            final R[] resultsCoeffs = resultsMatrices.newArray();
+            if (this.isSparse()) {
+                final R zero = this.at(0, 0).subtract(this.at(0, 0));
+                this.toSparse().multiplyInto(other.coefficients(), resultsMatrices.columnSize, resultsCoeffs,
+                        zero);
+                return resultsMatrices.wrap(resultsCoeffs);
+            }
+            MatrixMultiplication.multiply(this.matrices.coefficientClass, this.block(), other.block(),
+                    MatrixMultiplication.Block.of(resultsCoeffs, resultsMatrices.rowSize, resultsMatrices.columnSize));
+
+            return resultsMatrices.wrap(resultsCoeffs);
+
+        }
+
+        /**
+         * 行列とベクトルの積{@code this * v}。係数はvの係数と同じクラスである必要がある。
+         *
+         * @throws AlgebraicException
+         *             列数が0の場合(零ベクトルを得られないため)
+         */
+        public <F extends FieldElement<F>> VectorSpace<F>.Vector apply(final VectorSpace<F>.Vector v) {
+            final Matrices<F>.Matrix self = this.asMatrixOf(v.space().coefficientClass());
+            final int rows = this.matrices.rowSize;
+            final int columns = this.matrices.columnSize;
+            if (v.dim() != columns) {
+                throw new IllegalArgumentException("vector has unmatch dimension: " + v.dim() + ", need: " + columns);
+            }
+            if (columns == 0) {
+                throw new AlgebraicException("cannot construct zero vector from empty matrix");
+            }
+            final F[] x = v.coefficients();
+            final F[] result = newArray(v.space().coefficientClass(), rows);
+            for (int i = 0; i < rows; i++) {
+                final Accumulator<F> sum = self.at(i, 0).multiply(x[0]).accumulator();
+                for (int j = 1; j < columns; j++) {
+                    sum.addProduct(self.at(i, j), x[j]);
+                }
+                result[i] = sum.result();
+            }
+            return VectorSpace.of(v.space().coefficientClass(), rows).wrap(result);
+        }
+
+        /**
+         * この行列を多数のベクトルに作用させるための{@link BatchTransform}を返す。
+         *
+         * @param coefficientClass
+         *            この行列の係数のクラス
+         * @throws AlgebraicException
+         *             列数が0の場合(零ベクトルを得られないため)
+         */
+        public <F extends FieldElement<F>> BatchTransform<F> batchTransform(final Class<F> coefficientClass) {
+            return BatchTransform.of(this.asMatrixOf(coefficientClass), coefficientClass);
+        }
+
+        /**
+         * {@link #multiply(Matrix)}と同じ結果を、出力をブロックに分割して{@link Matrices#parallelPool()}で並列に計算する。
+         */
+        public Matrix multiplyParallel(final Matrix other) {
+            final Matrices<R> resultsMatrices = this.productMatrices(other);
+            final R[] resultsCoeffs = resultsMatrices.newArray();
+            ParallelMatrixOperations.multiply(this.matrices.coefficientClass, this.block(), other.block(),
+                    MatrixMultiplication.Block.of(resultsCoeffs, resultsMatrices.rowSize, resultsMatrices.columnSize));
+            return resultsMatrices.wrap(resultsCoeffs);
+        }
+
+        public Matrix addParallel(final Matrix other) {
+            checkAndThrow(other);
+            final R[] a = this.coefficients();
+            final R[] b = other.coefficients();
+            final R[] newCoeffs = this.matrices.newArray();
+            ParallelMatrixOperations.forEachIndex(newCoeffs.length, (idx) -> newCoeffs[idx] = a[idx].add(b[idx]));
+            return this.matrices.wrap(newCoeffs);
+        }
+
+        public Matrix subtractParallel(final Matrix other) {
+            checkAndThrow(other);
+            final R[] a = this.coefficients();
+            final R[] b = other.coefficients();
+            final R[] newCoeffs = this.matrices.newArray();
+            ParallelMatrixOperations.forEachIndex(newCoeffs.length, (idx) -> newCoeffs[idx] = a[idx].subtract(b[idx]));
+            return this.matrices.wrap(newCoeffs);
+        }
+
+        public Matrix scalarMultiplyParallel(final R scalar) {
+            final R[] a = this.coefficients();
+            final R[] newCoeffs = this.matrices.newArray();
+            ParallelMatrixOperations.forEachIndex(newCoeffs.length, (idx) -> newCoeffs[idx] = a[idx].multiply(scalar));
+            return this.matrices.wrap(newCoeffs);
+        }
+
+        /**
+         * Bareissの分数を使わない消去法で行列式を計算する。
+         * 係数は{@link IntegralDomainElement}である必要がある。
+         *
+         * @throws AlgebraicException
+         *             正方行列でない場合、空の行列の場合、係数が整域の元でない場合
+         */
+        public R determinant() {
+            if (this.matrices.rowSize != this.matrices.columnSize) {
+                throw new AlgebraicException("determinant is defined only for square matrix: ("
+                        + this.matrices.rowSize + ", " + this.matrices.columnSize + ")");
+            }
+            if (this.matrices.rowSize == 0) {
+                throw new AlgebraicException("determinant of empty matrix is not supported");
+            }
+            checkIntegralDomain();
+            switch (this.structure()) {
+            case ZERO:
+                return this.at(0, 0);
+            case IDENTITY:
+            case DIAGONAL:
+            case UPPER_TRIANGULAR:
+            case LOWER_TRIANGULAR:
+                // 三角行列の行列式は対角成分の積
+                R product = this.at(0, 0);
+                for (int i = 1; i < this.matrices.rowSize; i++) {
+                    product = product.multiply(this.at(i, i));
+                }
+                return product;
+            default:
+                break;
+            }
+            final MatrixResultCache cache = resultCache;
+            if (cache != null) {
+                return cache.computeIfAbsent(MatrixResultCache.Operation.DETERMINANT, this, null,
+                        this::determinantGeneral);
+            }
+            return this.determinantGeneral();
+        }
+
+        private R determinantGeneral() {
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            final R determinant = (R) FractionFreeElimination
+                    .determinant((IntegralDomainElement[]) this.coefficients().clone(), this.matrices.rowSize);
+            return determinant;
+        }
+
+        /**
+         * Bareissの分数を使わない消去法で階数を計算する。
+         * 係数は{@link IntegralDomainElement}である必要がある。
+         *
+         * @throws AlgebraicException
+         *             係数が整域の元でない場合
+         */
+        public int rank() {
+            checkIntegralDomain();
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            final int rank = FractionFreeElimination.rank((IntegralDomainElement[]) this.coefficients().clone(),
+                    this.matrices.rowSize, this.matrices.columnSize);
+            return rank;
+        }
+
+        private void checkIntegralDomain() {
+            if (!IntegralDomainElement.class.isAssignableFrom(this.matrices.coefficientClass)) {
+                throw new AlgebraicException(this.matrices.coefficientClass.getName() + " is not an "
+                        + IntegralDomainElement.class.getSimpleName());
+            }
+        }
+
+        /**
+         * 繰り返し二乗法による冪。負の指数は逆行列の冪とする。
+         * 同じ行列の冪を何度も求める場合は、二乗の列を保持する{@link #powers()}を使う。
+         *
+         * @throws AlgebraicException
+         *             正方行列でない場合、指数が0で単位元を得られない場合、指数が負で逆行列を求められない場合
+         */
+        public Matrix pow(final long exponent) {
+            this.checkSquare();
+            if (exponent < 0) {
+                final Matrix inverse = this.inverse();
+                // -Long.MIN_VALUEはlongに収まらないので1つ分けて掛ける
+                return inverse.pow(-(exponent + 1)).multiply(inverse);
+            }
+            if (exponent == 0) {
+                return this.identity();
+            }
+            if (exponent == 1) {
+                return this;
+            }
+            final MatrixResultCache cache = resultCache;
+            if (cache != null) {
+                return cache.computeIfAbsent(MatrixResultCache.Operation.POW, this, exponent,
+                        () -> this.powPositive(exponent));
+            }
+            return this.powPositive(exponent);
+        }
+
+        private Matrix powPositive(final long exponent) {
+            // 途中の二乗や積はキャッシュに登録しない
+            Matrix result = null;
+            Matrix base = this;
+            long e = exponent;
+            while (true) {
+                if ((e & 1) != 0) {
+                    result = result == null ? base : result.multiply(base, null);
+                }
+                e >>>= 1;
+                if (e == 0) {
+                    return result;
+                }
+                base = base.multiply(base, null);
             }
+        }
 
-            return resultsMatrices.getWith(resultsCoeffs);
+        /**
+         * この行列の冪を求めるための{@link MatrixPowers}。計算した二乗の列を保持して、異なる指数の冪の間で使い回す。
+         *
+         * @throws AlgebraicException
+         *             正方行列でない場合
+         */
+        public MatrixPowers<R> powers() {
+            this.checkSquare();
+            return new MatrixPowers<>(this);
+        }
 
+        private void checkSquare() {
+            if (this.matrices.rowSize != this.matrices.columnSize) {
+                throw new AlgebraicException("power is defined only for square matrix: (" + this.matrices.rowSize
+                        + ", " + this.matrices.columnSize + ")");
+            }
+        }
+
+        /**
+         * この行列と同じ大きさの単位行列。単位元は0でない成分cから{@code c / c}として得る。
+         *
+         * @throws AlgebraicException
+         *             係数が整域の元でない場合、0でない成分がない場合
+         */
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Matrix identity() {
+            if (this.structure() == Structure.IDENTITY) {
+                return this;
+            }
+            this.checkIntegralDomain();
+            for (final R coeff : this.coefficients()) {
+                if (!coeff.isZero()) {
+                    final IntegralDomainElement element = (IntegralDomainElement) coeff;
+                    return this.matrices.identity((R) element.divide(element));
+                }
+            }
+            throw new AlgebraicException("cannot construct unit element from zero matrix");
+        }
+
+        /**
+         * 逆行列を返す。係数は{@link FieldElement}である必要がある。
+         *
+         * @throws AlgebraicException
+         *             正方行列でない場合、特異な場合、係数が体の元でない場合
+         */
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        public Matrix inverse() {
+            this.checkField();
+            final MatrixResultCache cache = resultCache;
+            if (cache != null) {
+                return cache.computeIfAbsent(MatrixResultCache.Operation.INVERSE, this, null,
+                        () -> (Matrix) FieldMatrices.inverse((Matrices.Matrix) this));
+            }
+            return (Matrix) FieldMatrices.inverse((Matrices.Matrix) this);
+        }
+
+        /**
+         * 既約行階段形を返す。係数は{@link FieldElement}である必要がある。
+         *
+         * @throws AlgebraicException
+         *             係数が体の元でない場合
+         */
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        public Matrix rref() {
+            this.checkField();
+            return (Matrix) FieldMatrices.rref((Matrices.Matrix) this);
+        }
+
+        /**
+         * {@code this * x = b}を満たすxを1つ返す。解が一意でない場合は自由変数を0とした解を返す。
+         * 係数は{@link FieldElement}である必要がある。
+         * 自由変数に入れる零元は係数から作るため、行数が0で列数が正の行列(係数が1つもない場合)には使えない。
+         * 有理数係数の正則な行列では{@code number.number.RationalMatrices#solve}の方が係数の膨張が起きず高速である。
+         *
+         * @throws AlgebraicException
+         *             解が存在しない場合、係数が体の元でない場合、行数が0で列数が正の場合
+         */
+        public <F extends FieldElement<F>> VectorSpace<F>.Vector solve(final VectorSpace<F>.Vector b) {
+            final Matrices<F>.Matrix self = this.asMatrixOf(b.space().coefficientClass());
+            return FieldMatrices.solve(self, b);
+        }
+
+        /**
+         * 零空間({@code this * x = 0}を満たすxの全体)の基底を返す。
+         * 係数は{@link FieldElement}である必要がある。
+         * 基底の単位元は既約行階段形の軸の成分から得るため、零行列(行数が0の場合を含む)には使えない。
+         * 零行列の零空間は標準基底で張られるが、体の元のインタフェースには零元から単位元を作る手段がないためである。
+         *
+         * @param coefficientClass
+         *            この行列の係数のクラス
+         * @throws AlgebraicException
+         *             係数が体の元でない場合、零行列の場合(単位元を得られないため)
+         */
+        public <F extends FieldElement<F>> List<VectorSpace<F>.Vector> nullspace(final Class<F> coefficientClass) {
+            return FieldMatrices.nullspace(this.asMatrixOf(coefficientClass));
+        }
+
+        /**
+         * 係数のクラスが{@code coefficientClass}であることを確認して型を付け替える。
+         */
+        <S extends RingElement<S>> Matrices<S>.Matrix asMatrixOf(final Class<S> coefficientClass) {
+            if (this.matrices.coefficientClass != coefficientClass) {
+                throw new ClassCastException(this.matrices.coefficientClass.getName() + " cannot be cast to "
+                        + coefficientClass.getName());
+            }
+            @SuppressWarnings("unchecked")
+            final Matrices<S>.Matrix ret = (Matrices<S>.Matrix) this;
+            return ret;
+        }
+
+        private void checkField() {
+            if (!FieldElement.class.isAssignableFrom(this.matrices.coefficientClass)) {
+                throw new AlgebraicException(
+                        this.matrices.coefficientClass.getName() + " is not a " + FieldElement.class.getSimpleName());
+            }
+        }
+
+        private Matrices<R> productMatrices(final Matrix other) {
+            if (this.matrices.columnSize != other.matrices.rowSize) {
+                throw new IllegalArgumentException("not multiplicatable matrix this has column size "
+                        + this.matrices.columnSize + ", but other matrix has row size " + other.matrices.rowSize
+                        + "(other must have row size equal to this column size)");
+            }
+            return of(this.matrices.coefficientClass, this.matrices.rowSize, other.matrices.columnSize);
+        }
+
+        private MatrixMultiplication.Block<R> block() {
+            return new MatrixMultiplication.Block<>(this.data, this.offset, this.rowStride, this.columnStride,
+                    this.matrices.rowSize, this.matrices.columnSize);
         }
 
         @Override
@@ -267,9 +1221,19 @@ public class Matrices<R extends RingElement<R>> {
             if (!this.matrices.equals(other.matrices)) {
                 return false;
             }
+            // 両方のハッシュ値が計算済みなら、異なる場合は走査せずに済む
+            final Integer thisHash = this.hashCode.get();
+            final Integer otherHash = other.hashCode.get();
+            if (thisHash != null && otherHash != null && thisHash.intValue() != otherHash.intValue()) {
+                return false;
+            }
+            if (this.data == other.data && this.offset == other.offset && this.rowStride == other.rowStride
+                    && this.columnStride == other.columnStride) {
+                return true;
+            }
             for (int i = 0; i < this.matrices.rowSize; i++) {
                 for (int j = 0; j < this.matrices.columnSize; j++) {
-                    if (!this.coeffs[i][j].equals(other.coeffs[i][j])) {
+                    if (!this.at(i, j).equals(other.at(i, j))) {
                         return false;
                     }
                 }
@@ -279,10 +1243,20 @@ public class Matrices<R extends RingElement<R>> {
 
         }
 
+        /**
+         * 形と全成分から求めるハッシュ値。初回に全成分を走査して計算し、結果を保持する。
+         * 成分の並びについては行優先の係数配列の{@link Arrays#hashCode(Object[])}と同じ値になる。
+         */
         @Override
         public int hashCode() {
             if (this.hashCode.get() == null) {
-                this.hashCode.compareAndSet(null, this.matrices.hashCode() ^ this.coeffs.hashCode());
+                int hash = 1;
+                for (int i = 0; i < this.matrices.rowSize; i++) {
+                    for (int j = 0; j < this.matrices.columnSize; j++) {
+                        hash = 31 * hash + this.at(i, j).hashCode();
+                    }
+                }
+                this.hashCode.compareAndSet(null, this.matrices.hashCode() ^ hash);
             }
             return this.hashCode.get().intValue();
         }
@@ -306,7 +1280,7 @@ public class Matrices<R extends RingElement<R>> {
 
         for (int i = 0; i < self.matrices.rowSize; i++) {
             for (int j = 0; j < self.matrices.columnSize; j++) {
-                int columnLength = self.coeffs[i][j].toString().length();
+                int columnLength = self.get(i, j).toString().length();
                 columnWidth[j] = Math.max(columnLength, columnWidth[j]);
             }
         }
@@ -327,7 +1301,7 @@ public class Matrices<R extends RingElement<R>> {
                 } else {
                     builder.append(" ");
                 }
-                builder.append(String.format("%" + columnWidth[j] + "s", self.coeffs[i][j].toString()));
+                builder.append(String.format("%" + columnWidth[j] + "s", self.get(i, j).toString()));
             }
             builder.append("]");
         }
@@ -0,0 +1,237 @@
+package number.algebra;
+
+/**
+ * 行列の成分ごとの演算を記録しておき、まとめて評価する遅延評価の式。
+ *
+ * {@link #add}、{@link #subtract}、{@link #negate}、{@link #scalarMultiply}は式を組み立てるだけで係数の演算を行わず、
+ * {@link #evaluate()}で各成分について式全体を一度に計算して1つの係数配列に書き込む。途中の結果の行列は作られない。
+ * 成分ごとの演算にならない{@link #multiply}は、その時点で両辺を評価して積を計算する。
+ * {@link Matrices.Matrix#lazy()}で得る。不変でありスレッドセーフである。
+ */
+public final class MatrixExpression<R extends RingElement<R>> {
+
+    private final Matrices<R> matrices;
+    private final Node<R> node;
+
+    private MatrixExpression(final Matrices<R> matrices, final Node<R> node) {
+        this.matrices = matrices;
+        this.node = node;
+    }
+
+    static <R extends RingElement<R>> MatrixExpression<R> of(final Matrices<R>.Matrix matrix) {
+        return new MatrixExpression<>(matrix.matrices(), new Leaf<>(matrix.coefficients()));
+    }
+
+    public int rowSize() {
+        return this.matrices.rowSize();
+    }
+
+    public int columnSize() {
+        return this.matrices.columnSize();
+    }
+
+    private void checkAndThrow(final Matrices<R> other) {
+        if (!this.matrices.equals(other)) {
+            if (this.matrices.coefficientClass() != other.coefficientClass()) {
+                throw new IllegalArgumentException("matrix cannot add to different coefficient class matrix "
+                        + this.matrices.coefficientClass().getCanonicalName() + " != "
+                        + other.coefficientClass().getCanonicalName());
+            }
+            throw new IllegalArgumentException("matrix cannot add to different size (" + this.rowSize() + ", "
+                    + this.columnSize() + ") != (" + other.rowSize() + ", " + other.columnSize() + ")");
+        }
+    }
+
+    public MatrixExpression<R> add(final MatrixExpression<R> other) {
+        this.checkAndThrow(other.matrices);
+        return new MatrixExpression<>(this.matrices, new Add<>(this.node, other.node));
+    }
+
+    public MatrixExpression<R> add(final Matrices<R>.Matrix other) {
+        return this.add(of(other));
+    }
+
+    public MatrixExpression<R> subtract(final MatrixExpression<R> other) {
+        this.checkAndThrow(other.matrices);
+        return new MatrixExpression<>(this.matrices, new Subtract<>(this.node, other.node));
+    }
+
+    public MatrixExpression<R> subtract(final Matrices<R>.Matrix other) {
+        return this.subtract(of(other));
+    }
+
+    public MatrixExpression<R> negate() {
+        if (this.node instanceof Negate) {
+            // 符号反転の繰り返しは打ち消す
+            return new MatrixExpression<>(this.matrices, ((Negate<R>) this.node).operand);
+        }
+        return new MatrixExpression<>(this.matrices, new Negate<>(this.node));
+    }
+
+    public MatrixExpression<R> scalarMultiply(final R scalar) {
+        if (this.node instanceof ScalarMultiply) {
+            // (x * s) * t = x * (s * t) としてスカラー同士を先に掛けておく
+            final ScalarMultiply<R> inner = (ScalarMultiply<R>) this.node;
+            return new MatrixExpression<>(this.matrices,
+                    new ScalarMultiply<>(inner.operand, inner.scalar.multiply(scalar)));
+        }
+        return new MatrixExpression<>(this.matrices, new ScalarMultiply<>(this.node, scalar));
+    }
+
+    /**
+     * 行列積。両辺をこの時点で評価して積を求め、その結果を新たな式の葉とする。
+     */
+    public MatrixExpression<R> multiply(final MatrixExpression<R> other) {
+        return of(this.evaluate().multiply(other.evaluate()));
+    }
+
+    public MatrixExpression<R> multiply(final Matrices<R>.Matrix other) {
+        return of(this.evaluate().multiply(other));
+    }
+
+    /**
+     * (row, column)成分だけを計算する。
+     */
+    public R get(final int row, final int column) {
+        if (row < 0 || this.rowSize() <= row || column < 0 || this.columnSize() <= column) {
+            throw new IndexOutOfBoundsException(
+                    "(" + row + ", " + column + ") is out of (" + this.rowSize() + ", " + this.columnSize() + ")");
+        }
+        return this.node.get(row * this.columnSize() + column);
+    }
+
+    /**
+     * 式を評価する。各成分について式全体を計算し、結果の係数配列だけを確保する。
+     */
+    public Matrices<R>.Matrix evaluate() {
+        if (this.node instanceof Leaf) {
+            return this.matrices.wrap(((Leaf<R>) this.node).coeffs);
+        }
+        final R[] result = this.matrices.newArray();
+        for (int idx = 0; idx < result.length; idx++) {
+            result[idx] = this.node.get(idx);
+        }
+        return this.matrices.wrap(result);
+    }
+
+    /**
+     * {@link #evaluate()}と同じ結果を、成分を分割して{@link Matrices#parallelPool()}で並列に計算する。
+     */
+    public Matrices<R>.Matrix evaluateParallel() {
+        if (this.node instanceof Leaf) {
+            return this.matrices.wrap(((Leaf<R>) this.node).coeffs);
+        }
+        final R[] result = this.matrices.newArray();
+        ParallelMatrixOperations.forEachIndex(result.length, (idx) -> result[idx] = this.node.get(idx));
+        return this.matrices.wrap(result);
+    }
+
+    @Override
+    public String toString() {
+        return this.node.toString();
+    }
+
+    /**
+     * 式の節。行優先の添字の成分の値を返す。
+     */
+    private interface Node<R extends RingElement<R>> {
+        R get(int idx);
+    }
+
+    private static final class Leaf<R extends RingElement<R>> implements Node<R> {
+        final R[] coeffs;
+
+        Leaf(final R[] coeffs) {
+            this.coeffs = coeffs;
+        }
+
+        @Override
+        public R get(final int idx) {
+            return this.coeffs[idx];
+        }
+
+        @Override
+        public String toString() {
+            return "M@" + Integer.toHexString(System.identityHashCode(this.coeffs));
+        }
+    }
+
+    private static final class Add<R extends RingElement<R>> implements Node<R> {
+        final Node<R> left;
+        final Node<R> right;
+
+        Add(final Node<R> left, final Node<R> right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public R get(final int idx) {
+            return this.left.get(idx).add(this.right.get(idx));
+        }
+
+        @Override
+        public String toString() {
+            return "(" + this.left + " + " + this.right + ")";
+        }
+    }
+
+    private static final class Subtract<R extends RingElement<R>> implements Node<R> {
+        final Node<R> left;
+        final Node<R> right;
+
+        Subtract(final Node<R> left, final Node<R> right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public R get(final int idx) {
+            return this.left.get(idx).subtract(this.right.get(idx));
+        }
+
+        @Override
+        public String toString() {
+            return "(" + this.left + " - " + this.right + ")";
+        }
+    }
+
+    private static final class Negate<R extends RingElement<R>> implements Node<R> {
+        final Node<R> operand;
+
+        Negate(final Node<R> operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public R get(final int idx) {
+            return this.operand.get(idx).negate();
+        }
+
+        @Override
+        public String toString() {
+            return "-" + this.operand;
+        }
+    }
+
+    private static final class ScalarMultiply<R extends RingElement<R>> implements Node<R> {
+        final Node<R> operand;
+        final R scalar;
+
+        ScalarMultiply(final Node<R> operand, final R scalar) {
+            this.operand = operand;
+            this.scalar = scalar;
+        }
+
+        @Override
+        public R get(final int idx) {
+            return this.operand.get(idx).multiply(this.scalar);
+        }
+
+        @Override
+        public String toString() {
+            return this.operand + " * " + this.scalar;
+        }
+    }
+
+}
@@ -0,0 +1,253 @@
+package number.algebra;
+
+/**
+ * 行優先の係数配列に対する行列積の実装。
+ *
+ * 小さい行列はキャッシュの局所性を考慮したブロック分割(i-k-jの順)の積で計算し、
+ * 行数・列数のいずれもがしきい値以上の行列はStrassen-Winogradの方法で再帰的に計算する。
+ * Strassen-Winogradの方法では1段あたりの係数同士の積の回数が8分の7になる代わりに和の回数が増えるが、
+ * {@code MathInteger}や{@code Rational}のように積が和よりはるかに高価な係数では有利になる。
+ */
+final class MatrixMultiplication {
+
+    private static volatile int blockSize = Math.max(1,
+            Integer.getInteger("number.algebra.Matrices.multiply.blockSize", 64));
+
+    private static volatile int strassenThreshold = Math.max(2,
+            Integer.getInteger("number.algebra.Matrices.multiply.strassenThreshold", 128));
+
+    private MatrixMultiplication() {
+    }
+
+    static int blockSize() {
+        return blockSize;
+    }
+
+    static void setBlockSize(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("block size must be positive: " + size);
+        }
+        blockSize = size;
+    }
+
+    static int strassenThreshold() {
+        return strassenThreshold;
+    }
+
+    static void setStrassenThreshold(final int threshold) {
+        if (threshold < 2) {
+            throw new IllegalArgumentException("strassen threshold must be 2 or more: " + threshold);
+        }
+        strassenThreshold = threshold;
+    }
+
+    /**
+     * 配列中の部分行列。(i, j)成分は{@code data[offset + i * stride + j * columnStride]}にある。
+     * 転置した行列では{@code columnStride}が1でない。
+     */
+    static final class Block<R> {
+        final R[] data;
+        final int offset;
+        final int stride;
+        final int columnStride;
+        final int rows;
+        final int columns;
+
+        Block(final R[] data, final int offset, final int stride, final int columnStride, final int rows,
+                final int columns) {
+            this.data = data;
+            this.offset = offset;
+            this.stride = stride;
+            this.columnStride = columnStride;
+            this.rows = rows;
+            this.columns = columns;
+        }
+
+        static <R> Block<R> of(final R[] data, final int rows, final int columns) {
+            return new Block<>(data, 0, columns, 1, rows, columns);
+        }
+
+        Block<R> sub(final int row, final int column, final int rows, final int columns) {
+            return new Block<>(this.data, this.offset + row * this.stride + column * this.columnStride, this.stride,
+                    this.columnStride, rows, columns);
+        }
+
+        R get(final int row, final int column) {
+            return this.data[this.offset + row * this.stride + column * this.columnStride];
+        }
+
+        void set(final int row, final int column, final R value) {
+            this.data[this.offset + row * this.stride + column * this.columnStride] = value;
+        }
+
+    }
+
+    /**
+     * {@code c = a * b}を計算する。cの内容は上書きされる。
+     */
+    static <R extends RingElement<R>> void multiply(final Class<R> coefficientClass, final Block<R> a,
+            final Block<R> b, final Block<R> c) {
+        final int threshold = strassenThreshold;
+        if (a.rows >= threshold && a.columns >= threshold && b.columns >= threshold) {
+            strassenWinograd(coefficientClass, a, b, c, threshold);
+        } else {
+            blocked(a, b, c);
+        }
+    }
+
+    /**
+     * ブロック分割した積。bを行方向に走査するため、列方向に走査する素朴な3重ループよりキャッシュに優しい。
+     * 各成分の積和は{@link RingElement#accumulator()}に累積し、行のブロックごとに最後に一度だけ書き込む。
+     */
+    static <R extends RingElement<R>> void blocked(final Block<R> a, final Block<R> b, final Block<R> c) {
+        final int m = a.rows;
+        final int inner = a.columns;
+        final int n = b.columns;
+        if (inner == 0) {
+            return;
+        }
+        final int size = blockSize;
+        final Accumulator<R>[] sums = Matrices.newAccumulatorArray(Math.min(size, m) * n);
+        for (int i0 = 0; i0 < m; i0 += size) {
+            final int i1 = Math.min(i0 + size, m);
+            for (int k0 = 0; k0 < inner; k0 += size) {
+                final int k1 = Math.min(k0 + size, inner);
+                for (int j0 = 0; j0 < n; j0 += size) {
+                    final int j1 = Math.min(j0 + size, n);
+                    for (int i = i0; i < i1; i++) {
+                        final int sumRow = (i - i0) * n;
+                        for (int k = k0; k < k1; k++) {
+                            final R aik = a.get(i, k);
+                            final int bRow = b.offset + k * b.stride;
+                            if (k == 0) {
+                                // 最初の項で初期化する
+                                for (int j = j0; j < j1; j++) {
+                                    sums[sumRow + j] = aik.multiply(b.data[bRow + j * b.columnStride]).accumulator();
+                                }
+                            } else {
+                                for (int j = j0; j < j1; j++) {
+                                    sums[sumRow + j].addProduct(aik, b.data[bRow + j * b.columnStride]);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            for (int i = i0; i < i1; i++) {
+                final int cRow = c.offset + i * c.stride;
+                final int sumRow = (i - i0) * n;
+                for (int j = 0; j < n; j++) {
+                    c.data[cRow + j * c.columnStride] = sums[sumRow + j].result();
+                }
+            }
+        }
+    }
+
+    private static <R extends RingElement<R>> void strassenWinograd(final Class<R> coefficientClass,
+            final Block<R> a, final Block<R> b, final Block<R> c, final int threshold) {
+        final int m = a.rows;
+        final int inner = a.columns;
+        final int n = b.columns;
+        if (m < threshold || inner < threshold || n < threshold) {
+            blocked(a, b, c);
+            return;
+        }
+
+        // 偶数サイズの部分について再帰し、奇数サイズで余った行・列は後から補正する
+        final int mh = m / 2;
+        final int kh = inner / 2;
+        final int nh = n / 2;
+
+        final Block<R> a11 = a.sub(0, 0, mh, kh);
+        final Block<R> a12 = a.sub(0, kh, mh, kh);
+        final Block<R> a21 = a.sub(mh, 0, mh, kh);
+        final Block<R> a22 = a.sub(mh, kh, mh, kh);
+        final Block<R> b11 = b.sub(0, 0, kh, nh);
+        final Block<R> b12 = b.sub(0, nh, kh, nh);
+        final Block<R> b21 = b.sub(kh, 0, kh, nh);
+        final Block<R> b22 = b.sub(kh, nh, kh, nh);
+        final Block<R> c11 = c.sub(0, 0, mh, nh);
+        final Block<R> c12 = c.sub(0, nh, mh, nh);
+        final Block<R> c21 = c.sub(mh, 0, mh, nh);
+        final Block<R> c22 = c.sub(mh, nh, mh, nh);
+
+        final Block<R> s1 = add(coefficientClass, a21, a22);
+        final Block<R> s2 = subtract(coefficientClass, s1, a11);
+        final Block<R> s3 = subtract(coefficientClass, a11, a21);
+        final Block<R> s4 = subtract(coefficientClass, a12, s2);
+        final Block<R> t1 = subtract(coefficientClass, b12, b11);
+        final Block<R> t2 = subtract(coefficientClass, b22, t1);
+        final Block<R> t3 = subtract(coefficientClass, b22, b12);
+        final Block<R> t4 = subtract(coefficientClass, t2, b21);
+
+        final Block<R> p1 = newBlock(coefficientClass, mh, nh);
+        final Block<R> p2 = newBlock(coefficientClass, mh, nh);
+        final Block<R> p3 = newBlock(coefficientClass, mh, nh);
+        final Block<R> p4 = newBlock(coefficientClass, mh, nh);
+        final Block<R> p5 = newBlock(coefficientClass, mh, nh);
+        final Block<R> p6 = newBlock(coefficientClass, mh, nh);
+        final Block<R> p7 = newBlock(coefficientClass, mh, nh);
+        strassenWinograd(coefficientClass, a11, b11, p1, threshold);
+        strassenWinograd(coefficientClass, a12, b21, p2, threshold);
+        strassenWinograd(coefficientClass, s4, b22, p3, threshold);
+        strassenWinograd(coefficientClass, a22, t4, p4, threshold);
+        strassenWinograd(coefficientClass, s1, t1, p5, threshold);
+        strassenWinograd(coefficientClass, s2, t2, p6, threshold);
+        strassenWinograd(coefficientClass, s3, t3, p7, threshold);
+
+        for (int i = 0; i < mh; i++) {
+            for (int j = 0; j < nh; j++) {
+                final R u2 = p1.get(i, j).add(p6.get(i, j));
+                final R u3 = u2.add(p7.get(i, j));
+                c11.set(i, j, p1.get(i, j).add(p2.get(i, j)));
+                c12.set(i, j, u2.add(p5.get(i, j)).add(p3.get(i, j)));
+                c21.set(i, j, u3.subtract(p4.get(i, j)));
+                c22.set(i, j, u3.add(p5.get(i, j)));
+            }
+        }
+
+        if (inner % 2 != 0) {
+            // 余った最後の列と行の積を偶数サイズの部分に加える
+            final int k = inner - 1;
+            for (int i = 0; i < 2 * mh; i++) {
+                final R aik = a.get(i, k);
+                for (int j = 0; j < 2 * nh; j++) {
+                    c.set(i, j, c.get(i, j).add(aik.multiply(b.get(k, j))));
+                }
+            }
+        }
+        if (n % 2 != 0) {
+            blocked(a, b.sub(0, n - 1, inner, 1), c.sub(0, n - 1, m, 1));
+        }
+        if (m % 2 != 0) {
+            blocked(a.sub(m - 1, 0, 1, inner), b.sub(0, 0, inner, 2 * nh), c.sub(m - 1, 0, 1, 2 * nh));
+        }
+    }
+
+    private static <R> Block<R> newBlock(final Class<R> coefficientClass, final int rows, final int columns) {
+        return Block.of(Matrices.newArray(coefficientClass, rows * columns), rows, columns);
+    }
+
+    private static <R extends RingElement<R>> Block<R> add(final Class<R> coefficientClass, final Block<R> x,
+            final Block<R> y) {
+        final Block<R> z = newBlock(coefficientClass, x.rows, x.columns);
+        for (int i = 0; i < x.rows; i++) {
+            for (int j = 0; j < x.columns; j++) {
+                z.set(i, j, x.get(i, j).add(y.get(i, j)));
+            }
+        }
+        return z;
+    }
+
+    private static <R extends RingElement<R>> Block<R> subtract(final Class<R> coefficientClass, final Block<R> x,
+            final Block<R> y) {
+        final Block<R> z = newBlock(coefficientClass, x.rows, x.columns);
+        for (int i = 0; i < x.rows; i++) {
+            for (int j = 0; j < x.columns; j++) {
+                z.set(i, j, x.get(i, j).subtract(y.get(i, j)));
+            }
+        }
+        return z;
+    }
+
+}
@@ -0,0 +1,71 @@
+package number.algebra;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 1つの正方行列の冪を繰り返し求めるための作業領域。
+ *
+ * 繰り返し二乗法で必要になる A, A^2, A^4, ... を求めた分だけ保持し、以降の冪の計算で使い回す。
+ * 指数がeの冪は、保持済みの二乗を除けばeの2進表現で1の桁の個数より1少ない回数の積で求まる。
+ * {@link Matrices.Matrix#powers()}で得る。スレッドセーフである。
+ */
+public final class MatrixPowers<R extends RingElement<R>> {
+
+    private final Matrices<R>.Matrix base;
+    /** {@code squares.get().get(k)}は{@code base^(2^k)}。リストは変更せず、追加する場合は複製して置き換える */
+    private final AtomicReference<List<Matrices<R>.Matrix>> squares;
+
+    MatrixPowers(final Matrices<R>.Matrix base) {
+        this.base = base;
+        this.squares = new AtomicReference<>(Collections.singletonList(base));
+    }
+
+    public Matrices<R>.Matrix base() {
+        return this.base;
+    }
+
+    /**
+     * {@code base^(2^k)}。未計算なら直前の二乗から順に求めて保持する。
+     *
+     * 二乗の計算はロックせずに行い、保持済みの二乗だけを使う呼び出しを待たせない。
+     * 同じ二乗を同時に計算した場合は先に追加されたものを使う。
+     */
+    private Matrices<R>.Matrix square(final int k) {
+        while (true) {
+            final List<Matrices<R>.Matrix> current = this.squares.get();
+            if (k < current.size()) {
+                return current.get(k);
+            }
+            final Matrices<R>.Matrix last = current.get(current.size() - 1);
+            final List<Matrices<R>.Matrix> next = new ArrayList<>(current.size() + 1);
+            next.addAll(current);
+            next.add(last.multiply(last));
+            this.squares.compareAndSet(current, next);
+        }
+    }
+
+    /**
+     * 冪{@code base^exponent}。負の指数は{@link Matrices.Matrix#pow(long)}と同じく逆行列の冪とする(この場合は二乗を保持しない)。
+     *
+     * @throws AlgebraicException
+     *             指数が0で単位元を得られない場合、指数が負で逆行列を求められない場合
+     */
+    public Matrices<R>.Matrix pow(final long exponent) {
+        if (exponent <= 0) {
+            return this.base.pow(exponent);
+        }
+        Matrices<R>.Matrix result = null;
+        long e = exponent;
+        for (int k = 0; e != 0; k++, e >>>= 1) {
+            if ((e & 1) != 0) {
+                final Matrices<R>.Matrix square = this.square(k);
+                result = result == null ? square : result.multiply(square);
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,141 @@
+package number.algebra;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import utils.CacheMap;
+
+/**
+ * 行列の演算結果のキャッシュ。{@link Matrices#setResultCache(MatrixResultCache)}で設定した場合にのみ使われる。
+ *
+ * {@link Matrices.Matrix#multiply}、{@link Matrices.Matrix#pow}、{@link Matrices.Matrix#determinant()}、
+ * {@link Matrices.Matrix#inverse()}の結果を、演算の種類と被演算子の内容(成分から求めたハッシュ値と等価性)をキーとして保持する。
+ * エントリは{@link CacheMap}に保持するため、件数が上限を超えると最近参照されていない古いものから取り除かれ、
+ * 値はsoft参照なのでメモリが不足すればGCにより回収される。キーは被演算子の行列を強参照で保持する。
+ * スレッドセーフである。
+ */
+public final class MatrixResultCache {
+
+    enum Operation {
+        MULTIPLY, POW, DETERMINANT, INVERSE
+    }
+
+    private final CacheMap<Key, Object> cache;
+    private final int maximumSize;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * @param maximumSize
+     *            保持するエントリ数の上限
+     */
+    public MatrixResultCache(final int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximum size must be positive: " + maximumSize);
+        }
+        this.cache = new CacheMap<>(maximumSize);
+        this.maximumSize = maximumSize;
+    }
+
+    public int maximumSize() {
+        return this.maximumSize;
+    }
+
+    /**
+     * キャッシュから結果を返した回数。
+     */
+    public long hitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * キャッシュに結果がなく計算した回数。
+     */
+    public long missCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * 件数の上限を超えたため、またはGCにより値が回収されたために取り除いたエントリの累計。
+     */
+    public long evictionCount() {
+        return this.cache.evictionCount();
+    }
+
+    /**
+     * 保持しているエントリ数。値が回収済みでまだ取り除かれていないエントリを含むことがある。
+     */
+    public int size() {
+        return this.cache.size();
+    }
+
+    public void clear() {
+        this.cache.clear();
+    }
+
+    /**
+     * キーに対応する結果があればそれを返し、なければ{@code compute}で計算して登録する。
+     *
+     * 計算は{@link CacheMap#computeIfAbsent}の中では行わない。
+     * 計算中に別のキーでこのキャッシュを使う場合(負の指数の冪での逆行列など)や、計算が長い場合に他のキーの登録を妨げないためである。
+     * このため同じキーを同時に計算した場合は両方が計算し、先に登録された結果を返す。
+     */
+    <T> T computeIfAbsent(final Operation operation, final Matrices<?>.Matrix operand, final Object argument,
+            final Supplier<T> compute) {
+        final Key key = new Key(operation, operand, argument);
+        @SuppressWarnings("unchecked")
+        final T cached = (T) this.cache.get(key);
+        if (cached != null) {
+            this.hitCount.incrementAndGet();
+            return cached;
+        }
+        this.missCount.incrementAndGet();
+        final T value = compute.get();
+        @SuppressWarnings("unchecked")
+        final T before = (T) this.cache.putIfAbsent(key, value);
+        return before != null ? before : value;
+    }
+
+    @Override
+    public String toString() {
+        return "MatrixResultCache(size: " + this.size() + "/" + this.maximumSize + ", hit: " + this.hitCount()
+                + ", miss: " + this.missCount() + ", eviction: " + this.evictionCount() + ")";
+    }
+
+    private static final class Key {
+
+        private final Operation operation;
+        private final Matrices<?>.Matrix operand;
+        /** 2つ目の被演算子の行列、冪の指数。なければnull */
+        private final Object argument;
+        private final int hashCode;
+
+        Key(final Operation operation, final Matrices<?>.Matrix operand, final Object argument) {
+            this.operation = operation;
+            this.operand = operand;
+            this.argument = argument;
+            this.hashCode = (operation.ordinal() * 31 + operand.hashCode()) * 31 + Objects.hashCode(argument);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return this.hashCode == other.hashCode && this.operation == other.operation
+                    && this.operand.equals(other.operand) && Objects.equals(this.argument, other.argument);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+
+    }
+
+}
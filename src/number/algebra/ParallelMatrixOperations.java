@@ -0,0 +1,162 @@
+package number.algebra;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * {@link ForkJoinPool}を用いた行列演算の並列実行。
+ *
+ * 出力を再帰的に分割し、作業量がしきい値を下回った部分は逐次実行する。
+ * 係数は不変オブジェクトなので、出力の各部分は互いに独立に計算できる。
+ */
+final class ParallelMatrixOperations {
+
+    private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private static volatile int threshold = Math.max(1,
+            Integer.getInteger("number.algebra.Matrices.parallel.threshold", 4096));
+
+    private ParallelMatrixOperations() {
+    }
+
+    static ForkJoinPool pool() {
+        return pool;
+    }
+
+    static void setPool(final ForkJoinPool newPool) {
+        if (newPool == null) {
+            throw new NullPointerException("pool");
+        }
+        pool = newPool;
+    }
+
+    static int threshold() {
+        return threshold;
+    }
+
+    static void setThreshold(final int newThreshold) {
+        if (newThreshold < 1) {
+            throw new IllegalArgumentException("parallel threshold must be positive: " + newThreshold);
+        }
+        threshold = newThreshold;
+    }
+
+    @FunctionalInterface
+    interface IndexOperation {
+
+        void apply(int index);
+
+    }
+
+    /**
+     * {@code [0, length)}の各添字について{@code operation}を並列に実行する。
+     */
+    static void forEachIndex(final int length, final IndexOperation operation) {
+        final int grain = threshold;
+        if (length <= grain) {
+            for (int idx = 0; idx < length; idx++) {
+                operation.apply(idx);
+            }
+            return;
+        }
+        pool.invoke(new IndexRangeTask(0, length, grain, operation));
+    }
+
+    private static final class IndexRangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = -2659232938374611270L;
+
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final IndexOperation operation;
+
+        IndexRangeTask(final int from, final int to, final int grain, final IndexOperation operation) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.operation = operation;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= this.grain) {
+                for (int idx = this.from; idx < this.to; idx++) {
+                    this.operation.apply(idx);
+                }
+                return;
+            }
+            final int middle = (this.from + this.to) >>> 1;
+            invokeAll(new IndexRangeTask(this.from, middle, this.grain, this.operation),
+                    new IndexRangeTask(middle, this.to, this.grain, this.operation));
+        }
+
+    }
+
+    /**
+     * {@code c = a * b}を出力のブロックごとに並列に計算する。
+     */
+    static <R extends RingElement<R>> void multiply(final Class<R> coefficientClass,
+            final MatrixMultiplication.Block<R> a, final MatrixMultiplication.Block<R> b,
+            final MatrixMultiplication.Block<R> c) {
+        final MultiplyTask<R> task = new MultiplyTask<>(coefficientClass, a, b, c, threshold);
+        if (task.isSmall()) {
+            task.compute();
+            return;
+        }
+        pool.invoke(task);
+    }
+
+    private static final class MultiplyTask<R extends RingElement<R>> extends RecursiveAction {
+
+        private static final long serialVersionUID = 8017435419000470412L;
+
+        private final Class<R> coefficientClass;
+        private final MatrixMultiplication.Block<R> a;
+        private final MatrixMultiplication.Block<R> b;
+        private final MatrixMultiplication.Block<R> c;
+        private final int grain;
+
+        MultiplyTask(final Class<R> coefficientClass, final MatrixMultiplication.Block<R> a,
+                final MatrixMultiplication.Block<R> b, final MatrixMultiplication.Block<R> c, final int grain) {
+            this.coefficientClass = coefficientClass;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.grain = grain;
+        }
+
+        boolean isSmall() {
+            // 作業量は出力の要素数と内積の長さの積で見積もる
+            final long work = (long) this.c.rows * this.c.columns * Math.max(1, this.a.columns);
+            return work <= this.grain || (this.c.rows <= 1 && this.c.columns <= 1);
+        }
+
+        @Override
+        protected void compute() {
+            if (this.isSmall()) {
+                MatrixMultiplication.multiply(this.coefficientClass, this.a, this.b, this.c);
+                return;
+            }
+            final int inner = this.a.columns;
+            if (this.c.rows >= this.c.columns) {
+                final int half = this.c.rows / 2;
+                invokeAll(
+                        new MultiplyTask<>(this.coefficientClass, this.a.sub(0, 0, half, inner), this.b,
+                                this.c.sub(0, 0, half, this.c.columns), this.grain),
+                        new MultiplyTask<>(this.coefficientClass, this.a.sub(half, 0, this.c.rows - half, inner),
+                                this.b, this.c.sub(half, 0, this.c.rows - half, this.c.columns), this.grain));
+            } else {
+                final int half = this.c.columns / 2;
+                invokeAll(
+                        new MultiplyTask<>(this.coefficientClass, this.a, this.b.sub(0, 0, inner, half),
+                                this.c.sub(0, 0, this.c.rows, half), this.grain),
+                        new MultiplyTask<>(this.coefficientClass, this.a,
+                                this.b.sub(0, half, inner, this.c.columns - half),
+                                this.c.sub(0, half, this.c.rows, this.c.columns - half), this.grain));
+            }
+        }
+
+    }
+
+}
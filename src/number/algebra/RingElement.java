@@ -4,4 +4,21 @@ public interface RingElement<R extends RingElement<R>> extends AdditiveGroupElem
 
     R multiply(R other);
 
+    /**
+     * 単位元であるか。既定の実装は常にfalseを返す。
+     * 行列の構造(単位行列・置換行列)の判定に使うだけなので、判定できない環でも演算結果は変わらない。
+     */
+    default boolean isOne() {
+        return false;
+    }
+
+    /**
+     * このインスタンスを初期値とする{@link Accumulator}を返す。
+     * 積和を多く計算する場合は、{@code add}と{@code multiply}を繰り返すより一時オブジェクトが少なくて済む。
+     */
+    @SuppressWarnings("unchecked")
+    default Accumulator<R> accumulator() {
+        return new SimpleAccumulator<>((R) this);
+    }
+
 }
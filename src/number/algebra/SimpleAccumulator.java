@@ -0,0 +1,29 @@
+package number.algebra;
+
+/**
+ * {@link RingElement}の演算だけを用いる{@link Accumulator}の既定の実装。
+ */
+final class SimpleAccumulator<R extends RingElement<R>> implements Accumulator<R> {
+
+    private R sum;
+
+    SimpleAccumulator(final R initial) {
+        this.sum = initial;
+    }
+
+    @Override
+    public void add(final R value) {
+        this.sum = this.sum.add(value);
+    }
+
+    @Override
+    public void addProduct(final R a, final R b) {
+        this.sum = this.sum.add(a.multiply(b));
+    }
+
+    @Override
+    public R result() {
+        return this.sum;
+    }
+
+}
@@ -0,0 +1,499 @@
+package number.algebra;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * 0でない成分だけを保持する行列(CSR形式)。
+ *
+ * 各行の0でない成分を列番号の昇順に詰めて保持し、演算結果に現れた0も取り除くため、表現は値に対して一意になる。
+ * 演算はいずれも0でない成分の組についてのみ係数の演算を行う。列方向の走査が必要な場合(CSC形式)は
+ * {@link #transpose()}したものを使う。{@link Matrices.Matrix}とは{@link Matrices.Matrix#toSparse()}と
+ * {@link #toMatrix()}で相互に変換できる。
+ */
+public final class SparseMatrix<R extends RingElement<R>> implements ModuleElement<SparseMatrix<R>, R> {
+
+    private final Class<R> coefficientClass;
+    /** 保持していない成分の値。行列に成分がない場合はnull */
+    private final R zero;
+    private final int rowSize;
+    private final int columnSize;
+    /** i行目の成分は{@code columnIndexes}・{@code values}の{@code [rowStarts[i], rowStarts[i + 1])}にある */
+    private final int[] rowStarts;
+    private final int[] columnIndexes;
+    private final R[] values;
+
+    private SparseMatrix(final Class<R> coefficientClass, final R zero, final int rowSize, final int columnSize,
+            final int[] rowStarts, final int[] columnIndexes, final R[] values) {
+        this.coefficientClass = coefficientClass;
+        this.zero = zero;
+        this.rowSize = rowSize;
+        this.columnSize = columnSize;
+        this.rowStarts = rowStarts;
+        this.columnIndexes = columnIndexes;
+        this.values = values;
+    }
+
+    /**
+     * 密な行列から0でない成分を取り出す。
+     */
+    public static <R extends RingElement<R>> SparseMatrix<R> of(final Matrices<R>.Matrix matrix) {
+        final Class<R> coefficientClass = matrix.matrices().coefficientClass();
+        final int rows = matrix.rowSize();
+        final int columns = matrix.columnSize();
+        final R[] coeffs = matrix.coefficients();
+        int nonZero = 0;
+        for (final R coeff : coeffs) {
+            if (!coeff.isZero()) {
+                nonZero++;
+            }
+        }
+        final int[] rowStarts = new int[rows + 1];
+        final int[] columnIndexes = new int[nonZero];
+        final R[] values = Matrices.newArray(coefficientClass, nonZero);
+        int idx = 0;
+        for (int i = 0; i < rows; i++) {
+            rowStarts[i] = idx;
+            for (int j = 0; j < columns; j++) {
+                final R coeff = coeffs[i * columns + j];
+                if (!coeff.isZero()) {
+                    columnIndexes[idx] = j;
+                    values[idx] = coeff;
+                    idx++;
+                }
+            }
+        }
+        rowStarts[rows] = idx;
+        final R zero = coeffs.length == 0 ? null : coeffs[0].subtract(coeffs[0]);
+        return new SparseMatrix<>(coefficientClass, zero, rows, columns, rowStarts, columnIndexes, values);
+    }
+
+    /**
+     * 成分を1つずつ指定して作る。
+     *
+     * @param zero
+     *            係数の環の零元
+     */
+    public static <R extends RingElement<R>> Builder<R> builder(final Class<R> coefficientClass, final R zero,
+            final int rowSize, final int columnSize) {
+        if (rowSize < 0 || columnSize < 0) {
+            throw new IllegalArgumentException("negative size: (" + rowSize + ", " + columnSize + ")");
+        }
+        return new Builder<>(coefficientClass, zero, rowSize, columnSize);
+    }
+
+    public static final class Builder<R extends RingElement<R>> {
+
+        private final Class<R> coefficientClass;
+        private final R zero;
+        private final int rowSize;
+        private final int columnSize;
+        /** 行優先の位置 {@code row * columnSize + column} から値へ */
+        private final TreeMap<Long, R> entries = new TreeMap<>();
+
+        private Builder(final Class<R> coefficientClass, final R zero, final int rowSize, final int columnSize) {
+            this.coefficientClass = coefficientClass;
+            this.zero = zero;
+            this.rowSize = rowSize;
+            this.columnSize = columnSize;
+        }
+
+        /**
+         * (row, column)成分を設定する。同じ成分を複数回設定した場合は最後の値になる。
+         */
+        public Builder<R> set(final int row, final int column, final R value) {
+            if (row < 0 || this.rowSize <= row || column < 0 || this.columnSize <= column) {
+                throw new IndexOutOfBoundsException(
+                        "(" + row + ", " + column + ") is out of (" + this.rowSize + ", " + this.columnSize + ")");
+            }
+            this.entries.put((long) row * this.columnSize + column, value);
+            return this;
+        }
+
+        public SparseMatrix<R> build() {
+            int nonZero = 0;
+            for (final R value : this.entries.values()) {
+                if (!value.isZero()) {
+                    nonZero++;
+                }
+            }
+            final int[] rowStarts = new int[this.rowSize + 1];
+            final int[] columnIndexes = new int[nonZero];
+            final R[] values = Matrices.newArray(this.coefficientClass, nonZero);
+            int idx = 0;
+            for (final Map.Entry<Long, R> entry : this.entries.entrySet()) {
+                if (entry.getValue().isZero()) {
+                    continue;
+                }
+                final int row = (int) (entry.getKey() / this.columnSize);
+                // 各行の先頭位置は後でまとめて累積和にする
+                rowStarts[row + 1]++;
+                columnIndexes[idx] = (int) (entry.getKey() % this.columnSize);
+                values[idx] = entry.getValue();
+                idx++;
+            }
+            for (int i = 0; i < this.rowSize; i++) {
+                rowStarts[i + 1] += rowStarts[i];
+            }
+            return new SparseMatrix<>(this.coefficientClass, this.zero, this.rowSize, this.columnSize, rowStarts,
+                    columnIndexes, values);
+        }
+
+    }
+
+    public int rowSize() {
+        return this.rowSize;
+    }
+
+    public int columnSize() {
+        return this.columnSize;
+    }
+
+    /**
+     * 0でない成分の個数。
+     */
+    public int nonZeroCount() {
+        return this.values.length;
+    }
+
+    /**
+     * 0でない成分の割合。成分がない場合は0。
+     */
+    public double density() {
+        final long size = (long) this.rowSize * this.columnSize;
+        return size == 0 ? 0.0 : (double) this.values.length / size;
+    }
+
+    public R get(final int row, final int column) {
+        if (row < 0 || this.rowSize <= row || column < 0 || this.columnSize <= column) {
+            throw new IndexOutOfBoundsException(
+                    "(" + row + ", " + column + ") is out of (" + this.rowSize + ", " + this.columnSize + ")");
+        }
+        final int idx = Arrays.binarySearch(this.columnIndexes, this.rowStarts[row], this.rowStarts[row + 1], column);
+        return idx >= 0 ? this.values[idx] : this.zero;
+    }
+
+    public Matrices<R>.Matrix toMatrix() {
+        final Matrices<R> matrices = Matrices.of(this.coefficientClass, this.rowSize, this.columnSize);
+        final R[] coeffs = matrices.newArray();
+        Arrays.fill(coeffs, this.zero);
+        for (int i = 0; i < this.rowSize; i++) {
+            for (int idx = this.rowStarts[i]; idx < this.rowStarts[i + 1]; idx++) {
+                coeffs[i * this.columnSize + this.columnIndexes[idx]] = this.values[idx];
+            }
+        }
+        return matrices.wrap(coeffs);
+    }
+
+    /**
+     * 転置行列。この行列のCSC形式の表現にもなっている。
+     */
+    public SparseMatrix<R> transpose() {
+        final int[] rowStarts = new int[this.columnSize + 1];
+        for (final int column : this.columnIndexes) {
+            rowStarts[column + 1]++;
+        }
+        for (int j = 0; j < this.columnSize; j++) {
+            rowStarts[j + 1] += rowStarts[j];
+        }
+        final int[] next = Arrays.copyOf(rowStarts, this.columnSize);
+        final int[] columnIndexes = new int[this.values.length];
+        final R[] values = Matrices.newArray(this.coefficientClass, this.values.length);
+        // 行の昇順に走査するので、転置後の各行の列番号も昇順になる
+        for (int i = 0; i < this.rowSize; i++) {
+            for (int idx = this.rowStarts[i]; idx < this.rowStarts[i + 1]; idx++) {
+                final int position = next[this.columnIndexes[idx]]++;
+                columnIndexes[position] = i;
+                values[position] = this.values[idx];
+            }
+        }
+        return new SparseMatrix<>(this.coefficientClass, this.zero, this.columnSize, this.rowSize, rowStarts,
+                columnIndexes, values);
+    }
+
+    private void checkAndThrow(final SparseMatrix<R> other) {
+        if (this.coefficientClass != other.coefficientClass) {
+            throw new IllegalArgumentException("matrix cannot add to different coefficient class matrix "
+                    + this.coefficientClass.getCanonicalName() + " != " + other.coefficientClass.getCanonicalName());
+        }
+        if (this.rowSize != other.rowSize || this.columnSize != other.columnSize) {
+            throw new IllegalArgumentException("matrix cannot add to different size (" + this.rowSize + ", "
+                    + this.columnSize + ") != (" + other.rowSize + ", " + other.columnSize + ")");
+        }
+    }
+
+    @Override
+    public SparseMatrix<R> add(final SparseMatrix<R> other) {
+        this.checkAndThrow(other);
+        return this.merge(other, false);
+    }
+
+    @Override
+    public SparseMatrix<R> subtract(final SparseMatrix<R> other) {
+        this.checkAndThrow(other);
+        return this.merge(other, true);
+    }
+
+    /**
+     * 各行の列番号の列を併合して和(subtractがtrueなら差)を求める。
+     */
+    private SparseMatrix<R> merge(final SparseMatrix<R> other, final boolean subtract) {
+        final int capacity = this.values.length + other.values.length;
+        final int[] rowStarts = new int[this.rowSize + 1];
+        final int[] columnIndexes = new int[capacity];
+        final R[] values = Matrices.newArray(this.coefficientClass, capacity);
+        int idx = 0;
+        for (int i = 0; i < this.rowSize; i++) {
+            rowStarts[i] = idx;
+            int x = this.rowStarts[i];
+            int y = other.rowStarts[i];
+            final int xEnd = this.rowStarts[i + 1];
+            final int yEnd = other.rowStarts[i + 1];
+            while (x < xEnd || y < yEnd) {
+                final int xColumn = x < xEnd ? this.columnIndexes[x] : Integer.MAX_VALUE;
+                final int yColumn = y < yEnd ? other.columnIndexes[y] : Integer.MAX_VALUE;
+                final int column;
+                final R value;
+                if (xColumn < yColumn) {
+                    column = xColumn;
+                    value = this.values[x++];
+                } else if (yColumn < xColumn) {
+                    column = yColumn;
+                    value = subtract ? other.values[y].negate() : other.values[y];
+                    y++;
+                } else {
+                    column = xColumn;
+                    value = subtract ? this.values[x++].subtract(other.values[y++])
+                            : this.values[x++].add(other.values[y++]);
+                    if (value.isZero()) {
+                        continue;
+                    }
+                }
+                columnIndexes[idx] = column;
+                values[idx] = value;
+                idx++;
+            }
+        }
+        rowStarts[this.rowSize] = idx;
+        return new SparseMatrix<>(this.coefficientClass, this.zero, this.rowSize, this.columnSize, rowStarts,
+                Arrays.copyOf(columnIndexes, idx), Arrays.copyOf(values, idx));
+    }
+
+    @Override
+    public SparseMatrix<R> negate() {
+        final R[] values = Matrices.newArray(this.coefficientClass, this.values.length);
+        for (int idx = 0; idx < values.length; idx++) {
+            values[idx] = this.values[idx].negate();
+        }
+        return new SparseMatrix<>(this.coefficientClass, this.zero, this.rowSize, this.columnSize, this.rowStarts,
+                this.columnIndexes, values);
+    }
+
+    @Override
+    public SparseMatrix<R> scalarMultiply(final R scalar) {
+        final int[] rowStarts = new int[this.rowSize + 1];
+        final int[] columnIndexes = new int[this.values.length];
+        final R[] values = Matrices.newArray(this.coefficientClass, this.values.length);
+        int idx = 0;
+        for (int i = 0; i < this.rowSize; i++) {
+            rowStarts[i] = idx;
+            for (int k = this.rowStarts[i]; k < this.rowStarts[i + 1]; k++) {
+                // 零因子を持つ環では積が0になりうる
+                final R value = this.values[k].multiply(scalar);
+                if (!value.isZero()) {
+                    columnIndexes[idx] = this.columnIndexes[k];
+                    values[idx] = value;
+                    idx++;
+                }
+            }
+        }
+        rowStarts[this.rowSize] = idx;
+        return new SparseMatrix<>(this.coefficientClass, this.zero, this.rowSize, this.columnSize, rowStarts,
+                Arrays.copyOf(columnIndexes, idx), Arrays.copyOf(values, idx));
+    }
+
+    @Override
+    public boolean isZero() {
+        return this.values.length == 0;
+    }
+
+    /**
+     * 疎行列同士の積。行ごとに、現れた列だけを記録しながら積和を累積する(Gustavsonの方法)。
+     */
+    public SparseMatrix<R> multiply(final SparseMatrix<R> other) {
+        if (this.columnSize != other.rowSize) {
+            throw new IllegalArgumentException("not multiplicatable matrix this has column size " + this.columnSize
+                    + ", but other matrix has row size " + other.rowSize
+                    + "(other must have row size equal to this column size)");
+        }
+        final int n = other.columnSize;
+        final Accumulator<R>[] sums = Matrices.newAccumulatorArray(n);
+        final int[] touched = new int[n];
+
+        final int[] rowStarts = new int[this.rowSize + 1];
+        int[] columnIndexes = new int[Math.max(this.values.length, other.values.length)];
+        R[] values = Matrices.newArray(this.coefficientClass, columnIndexes.length);
+        int idx = 0;
+        for (int i = 0; i < this.rowSize; i++) {
+            rowStarts[i] = idx;
+            int count = 0;
+            for (int p = this.rowStarts[i]; p < this.rowStarts[i + 1]; p++) {
+                final R aik = this.values[p];
+                final int k = this.columnIndexes[p];
+                for (int q = other.rowStarts[k]; q < other.rowStarts[k + 1]; q++) {
+                    final int j = other.columnIndexes[q];
+                    if (sums[j] == null) {
+                        sums[j] = aik.multiply(other.values[q]).accumulator();
+                        touched[count++] = j;
+                    } else {
+                        sums[j].addProduct(aik, other.values[q]);
+                    }
+                }
+            }
+            Arrays.sort(touched, 0, count);
+            if (idx + count > columnIndexes.length) {
+                final int capacity = Math.max(idx + count, 2 * columnIndexes.length);
+                columnIndexes = Arrays.copyOf(columnIndexes, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            for (int t = 0; t < count; t++) {
+                final int j = touched[t];
+                final R value = sums[j].result();
+                sums[j] = null;
+                if (!value.isZero()) {
+                    columnIndexes[idx] = j;
+                    values[idx] = value;
+                    idx++;
+                }
+            }
+        }
+        rowStarts[this.rowSize] = idx;
+        final R zero = this.zero != null ? this.zero : other.zero;
+        return new SparseMatrix<>(this.coefficientClass, zero, this.rowSize, n, rowStarts,
+                Arrays.copyOf(columnIndexes, idx), Arrays.copyOf(values, idx));
+    }
+
+    /**
+     * 疎行列と密な行列の積。結果は密な行列になる。
+     */
+    public Matrices<R>.Matrix multiply(final Matrices<R>.Matrix other) {
+        if (this.columnSize != other.rowSize()) {
+            throw new IllegalArgumentException("not multiplicatable matrix this has column size " + this.columnSize
+                    + ", but other matrix has row size " + other.rowSize()
+                    + "(other must have row size equal to this column size)");
+        }
+        final int n = other.columnSize();
+        final Matrices<R> resultsMatrices = Matrices.of(this.coefficientClass, this.rowSize, n);
+        final R[] result = resultsMatrices.newArray();
+        final R zero = this.zero != null ? this.zero : other.coefficients().length == 0 ? null
+                : other.coefficients()[0].subtract(other.coefficients()[0]);
+        this.multiplyInto(other.coefficients(), n, result, zero);
+        return resultsMatrices.wrap(result);
+    }
+
+    /**
+     * 行優先の密な行列bとの積を行優先の配列cに書き込む。0でない成分のない行はzeroで埋める。
+     */
+    void multiplyInto(final R[] b, final int n, final R[] c, final R zero) {
+        final Accumulator<R>[] sums = Matrices.newAccumulatorArray(n);
+        for (int i = 0; i < this.rowSize; i++) {
+            final int start = this.rowStarts[i];
+            final int end = this.rowStarts[i + 1];
+            if (start == end) {
+                Arrays.fill(c, i * n, (i + 1) * n, zero);
+                continue;
+            }
+            final R first = this.values[start];
+            final int firstRow = this.columnIndexes[start] * n;
+            for (int j = 0; j < n; j++) {
+                sums[j] = first.multiply(b[firstRow + j]).accumulator();
+            }
+            for (int p = start + 1; p < end; p++) {
+                final R aik = this.values[p];
+                final int bRow = this.columnIndexes[p] * n;
+                for (int j = 0; j < n; j++) {
+                    sums[j].addProduct(aik, b[bRow + j]);
+                }
+            }
+            for (int j = 0; j < n; j++) {
+                c[i * n + j] = sums[j].result();
+            }
+        }
+    }
+
+    /**
+     * 疎ベクトルとの積{@code this * v}。係数はvの係数と同じクラスである必要がある。
+     */
+    @SuppressWarnings("unchecked")
+    public <F extends FieldElement<F>> SparseVector<F> apply(final SparseVector<F> v) {
+        if (this.coefficientClass != v.coefficientClass()) {
+            throw new ClassCastException(
+                    this.coefficientClass.getName() + " cannot be cast to " + v.coefficientClass().getName());
+        }
+        if (v.dim() != this.columnSize) {
+            throw new IllegalArgumentException(
+                    "vector has unmatch dimension: " + v.dim() + ", need: " + this.columnSize);
+        }
+        final SparseMatrix<F> self = (SparseMatrix<F>) (SparseMatrix<?>) this;
+        final int[] indexes = new int[this.rowSize];
+        final F[] values = Matrices.newArray(v.coefficientClass(), this.rowSize);
+        int count = 0;
+        for (int i = 0; i < this.rowSize; i++) {
+            final F value = v.dotRow(self.columnIndexes, self.values, self.rowStarts[i], self.rowStarts[i + 1]);
+            if (value != null && !value.isZero()) {
+                indexes[count] = i;
+                values[count] = value;
+                count++;
+            }
+        }
+        final F zero = self.zero != null ? self.zero : v.zero();
+        return SparseVector.wrap(v.coefficientClass(), zero, this.rowSize, Arrays.copyOf(indexes, count),
+                Arrays.copyOf(values, count));
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SparseMatrix)) {
+            return false;
+        }
+        final SparseMatrix<?> other = (SparseMatrix<?>) obj;
+        // 0を保持しないので表現は一意であり、保持している成分だけを比較すればよい
+        return this.coefficientClass == other.coefficientClass && this.rowSize == other.rowSize
+                && this.columnSize == other.columnSize && Arrays.equals(this.rowStarts, other.rowStarts)
+                && Arrays.equals(this.columnIndexes, other.columnIndexes) && Arrays.equals(this.values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.rowSize, this.columnSize) ^ Arrays.hashCode(this.columnIndexes) * 31
+                ^ Arrays.hashCode(this.values);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("SparseMatrix(").append(this.rowSize).append(", ")
+                .append(this.columnSize).append("): {");
+        boolean first = true;
+        for (int i = 0; i < this.rowSize; i++) {
+            for (int idx = this.rowStarts[i]; idx < this.rowStarts[i + 1]; idx++) {
+                if (first) {
+                    first = false;
+                } else {
+                    builder.append(", ");
+                }
+                builder.append('(').append(i).append(", ").append(this.columnIndexes[idx]).append(")=")
+                        .append(this.values[idx]);
+            }
+        }
+        return builder.append('}').toString();
+    }
+
+}
@@ -0,0 +1,317 @@
+package number.algebra;
+
+import java.util.Arrays;
+
+/**
+ * 0でない成分だけを(添字, 値)の組として保持するベクトル。
+ *
+ * 添字は昇順に並べ、演算結果に現れた0も取り除くため、表現は値に対して一意になる。
+ * {@link VectorSpace.Vector}とは{@link VectorSpace.Vector#toSparse()}と{@link #toVector()}で相互に変換できる。
+ */
+public final class SparseVector<F extends FieldElement<F>> implements ModuleElement<SparseVector<F>, F> {
+
+    private final Class<F> coefficientClass;
+    /** 保持していない成分の値。0次元の場合はnull */
+    private final F zero;
+    private final int dim;
+    private final int[] indexes;
+    private final F[] values;
+
+    private SparseVector(final Class<F> coefficientClass, final F zero, final int dim, final int[] indexes,
+            final F[] values) {
+        this.coefficientClass = coefficientClass;
+        this.zero = zero;
+        this.dim = dim;
+        this.indexes = indexes;
+        this.values = values;
+    }
+
+    /**
+     * 添字が昇順で0を含まないことが分かっている配列からベクトルを得る。配列の複製は行わない。
+     */
+    static <F extends FieldElement<F>> SparseVector<F> wrap(final Class<F> coefficientClass, final F zero,
+            final int dim, final int[] indexes, final F[] values) {
+        return new SparseVector<>(coefficientClass, zero, dim, indexes, values);
+    }
+
+    static <F extends FieldElement<F>> SparseVector<F> of(final VectorSpace<F>.Vector vector) {
+        final F[] coeffs = vector.coefficients();
+        int nonZero = 0;
+        for (final F coeff : coeffs) {
+            if (!coeff.isZero()) {
+                nonZero++;
+            }
+        }
+        final Class<F> coefficientClass = vector.space().coefficientClass();
+        final int[] indexes = new int[nonZero];
+        final F[] values = Matrices.newArray(coefficientClass, nonZero);
+        int idx = 0;
+        for (int i = 0; i < coeffs.length; i++) {
+            if (!coeffs[i].isZero()) {
+                indexes[idx] = i;
+                values[idx] = coeffs[i];
+                idx++;
+            }
+        }
+        final F zero = coeffs.length == 0 ? null : coeffs[0].subtract(coeffs[0]);
+        return new SparseVector<>(coefficientClass, zero, coeffs.length, indexes, values);
+    }
+
+    /**
+     * 添字と値の組からベクトルを得る。組の順序は問わない。
+     *
+     * @param zero
+     *            係数の体の零元
+     * @throws IndexOutOfBoundsException
+     *             添字が範囲外の場合
+     * @throws IllegalArgumentException
+     *             添字と値の個数が異なる場合、添字が重複している場合
+     */
+    public static <F extends FieldElement<F>> SparseVector<F> of(final Class<F> coefficientClass, final F zero,
+            final int dim, final int[] indexes, final F[] values) {
+        if (indexes.length != values.length) {
+            throw new IllegalArgumentException(
+                    "indexes and values have different length: " + indexes.length + " != " + values.length);
+        }
+        final Integer[] order = new Integer[indexes.length];
+        for (int k = 0; k < order.length; k++) {
+            if (indexes[k] < 0 || dim <= indexes[k]) {
+                throw new IndexOutOfBoundsException(indexes[k] + " is out of " + dim);
+            }
+            order[k] = k;
+        }
+        Arrays.sort(order, (x, y) -> Integer.compare(indexes[x], indexes[y]));
+        final int[] sortedIndexes = new int[indexes.length];
+        final F[] sortedValues = Matrices.newArray(coefficientClass, values.length);
+        int count = 0;
+        for (int k = 0; k < order.length; k++) {
+            if (k > 0 && indexes[order[k]] == indexes[order[k - 1]]) {
+                throw new IllegalArgumentException("duplicate index: " + indexes[order[k]]);
+            }
+            final F value = values[order[k]];
+            if (!value.isZero()) {
+                sortedIndexes[count] = indexes[order[k]];
+                sortedValues[count] = value;
+                count++;
+            }
+        }
+        return new SparseVector<>(coefficientClass, zero, dim, Arrays.copyOf(sortedIndexes, count),
+                Arrays.copyOf(sortedValues, count));
+    }
+
+    Class<F> coefficientClass() {
+        return this.coefficientClass;
+    }
+
+    F zero() {
+        return this.zero;
+    }
+
+    public int dim() {
+        return this.dim;
+    }
+
+    /**
+     * 0でない成分の個数。
+     */
+    public int nonZeroCount() {
+        return this.values.length;
+    }
+
+    public F get(final int index) {
+        if (index < 0 || this.dim <= index) {
+            throw new IndexOutOfBoundsException(index + " is out of " + this.dim);
+        }
+        final int idx = Arrays.binarySearch(this.indexes, index);
+        return idx >= 0 ? this.values[idx] : this.zero;
+    }
+
+    public VectorSpace<F>.Vector toVector() {
+        final F[] coeffs = Matrices.newArray(this.coefficientClass, this.dim);
+        Arrays.fill(coeffs, this.zero);
+        for (int idx = 0; idx < this.indexes.length; idx++) {
+            coeffs[this.indexes[idx]] = this.values[idx];
+        }
+        return VectorSpace.of(this.coefficientClass, this.dim).wrap(coeffs);
+    }
+
+    private void checkAndThrow(final SparseVector<F> other) {
+        if (this.dim != other.dim) {
+            throw new IllegalArgumentException("vector has unmatch dimension: " + other.dim + ", need: " + this.dim);
+        }
+    }
+
+    @Override
+    public SparseVector<F> add(final SparseVector<F> other) {
+        this.checkAndThrow(other);
+        return this.merge(other, false);
+    }
+
+    @Override
+    public SparseVector<F> subtract(final SparseVector<F> other) {
+        this.checkAndThrow(other);
+        return this.merge(other, true);
+    }
+
+    private SparseVector<F> merge(final SparseVector<F> other, final boolean subtract) {
+        final int capacity = this.values.length + other.values.length;
+        final int[] indexes = new int[capacity];
+        final F[] values = Matrices.newArray(this.coefficientClass, capacity);
+        int count = 0;
+        int x = 0;
+        int y = 0;
+        while (x < this.indexes.length || y < other.indexes.length) {
+            final int xIndex = x < this.indexes.length ? this.indexes[x] : Integer.MAX_VALUE;
+            final int yIndex = y < other.indexes.length ? other.indexes[y] : Integer.MAX_VALUE;
+            final int index;
+            final F value;
+            if (xIndex < yIndex) {
+                index = xIndex;
+                value = this.values[x++];
+            } else if (yIndex < xIndex) {
+                index = yIndex;
+                value = subtract ? other.values[y].negate() : other.values[y];
+                y++;
+            } else {
+                index = xIndex;
+                value = subtract ? this.values[x++].subtract(other.values[y++])
+                        : this.values[x++].add(other.values[y++]);
+                if (value.isZero()) {
+                    continue;
+                }
+            }
+            indexes[count] = index;
+            values[count] = value;
+            count++;
+        }
+        return new SparseVector<>(this.coefficientClass, this.zero, this.dim, Arrays.copyOf(indexes, count),
+                Arrays.copyOf(values, count));
+    }
+
+    @Override
+    public SparseVector<F> negate() {
+        final F[] values = Matrices.newArray(this.coefficientClass, this.values.length);
+        for (int idx = 0; idx < values.length; idx++) {
+            values[idx] = this.values[idx].negate();
+        }
+        return new SparseVector<>(this.coefficientClass, this.zero, this.dim, this.indexes, values);
+    }
+
+    @Override
+    public SparseVector<F> scalarMultiply(final F scalar) {
+        if (scalar.isZero()) {
+            return new SparseVector<>(this.coefficientClass, this.zero, this.dim, new int[0],
+                    Matrices.newArray(this.coefficientClass, 0));
+        }
+        // 体には零因子がないので、0でない成分の積は0にならない
+        final F[] values = Matrices.newArray(this.coefficientClass, this.values.length);
+        for (int idx = 0; idx < values.length; idx++) {
+            values[idx] = this.values[idx].multiply(scalar);
+        }
+        return new SparseVector<>(this.coefficientClass, this.zero, this.dim, this.indexes, values);
+    }
+
+    @Override
+    public boolean isZero() {
+        return this.values.length == 0;
+    }
+
+    /**
+     * 内積。両方が0でない成分の組についてのみ積和を取る。
+     *
+     * @throws AlgebraicException
+     *             0次元の場合(零元を得られないため)
+     */
+    public F dot(final SparseVector<F> other) {
+        this.checkAndThrow(other);
+        if (this.dim == 0) {
+            throw new AlgebraicException("cannot construct zero from 0-dimensional vector");
+        }
+        final F sum = other.dotRow(this.indexes, this.values, 0, this.indexes.length);
+        return sum == null ? this.zero : sum;
+    }
+
+    /**
+     * 密なベクトルとの内積。
+     *
+     * @throws AlgebraicException
+     *             0次元の場合(零元を得られないため)
+     */
+    public F dot(final VectorSpace<F>.Vector other) {
+        if (this.dim != other.dim()) {
+            throw new IllegalArgumentException("vector has unmatch dimension: " + other.dim() + ", need: " + this.dim);
+        }
+        if (this.dim == 0) {
+            throw new AlgebraicException("cannot construct zero from 0-dimensional vector");
+        }
+        if (this.values.length == 0) {
+            return this.zero;
+        }
+        final F[] coeffs = other.coefficients();
+        final Accumulator<F> sum = this.values[0].multiply(coeffs[this.indexes[0]]).accumulator();
+        for (int idx = 1; idx < this.values.length; idx++) {
+            sum.addProduct(this.values[idx], coeffs[this.indexes[idx]]);
+        }
+        return sum.result();
+    }
+
+    /**
+     * 添字の昇順に並んだ{@code [start, end)}の組とこのベクトルとの内積。共通の添字がなければnull。
+     */
+    F dotRow(final int[] rowIndexes, final F[] rowValues, final int start, final int end) {
+        Accumulator<F> sum = null;
+        int x = start;
+        int y = 0;
+        while (x < end && y < this.indexes.length) {
+            if (rowIndexes[x] < this.indexes[y]) {
+                x++;
+            } else if (this.indexes[y] < rowIndexes[x]) {
+                y++;
+            } else {
+                if (sum == null) {
+                    sum = rowValues[x].multiply(this.values[y]).accumulator();
+                } else {
+                    sum.addProduct(rowValues[x], this.values[y]);
+                }
+                x++;
+                y++;
+            }
+        }
+        return sum == null ? null : sum.result();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SparseVector)) {
+            return false;
+        }
+        final SparseVector<?> other = (SparseVector<?>) obj;
+        // 0を保持しないので表現は一意であり、保持している成分だけを比較すればよい
+        return this.coefficientClass == other.coefficientClass && this.dim == other.dim
+                && Arrays.equals(this.indexes, other.indexes) && Arrays.equals(this.values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.dim ^ Arrays.hashCode(this.indexes) * 31 ^ Arrays.hashCode(this.values);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("SparseVector(").append(this.dim).append("): {");
+        for (int idx = 0; idx < this.indexes.length; idx++) {
+            if (idx > 0) {
+                builder.append(", ");
+            }
+            builder.append(this.indexes[idx]).append('=').append(this.values[idx]);
+        }
+        return builder.append('}').toString();
+    }
+
+}
@@ -4,12 +4,16 @@ import java.util.Arrays;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicReference;
 
-import utils.CacheMap;
-import utils.Tuple;
+import utils.ShapeRegistry;
 
 public class VectorSpace<F extends FieldElement<F>> {
 
-    private static final CacheMap<Tuple<Class<?>, Integer>, VectorSpace<?>> CACHE = new CacheMap<>();
+    private static final ClassValue<ShapeRegistry<VectorSpace<?>>> REGISTRY = new ClassValue<ShapeRegistry<VectorSpace<?>>>() {
+        @Override
+        protected ShapeRegistry<VectorSpace<?>> computeValue(final Class<?> coefficientClass) {
+            return new ShapeRegistry<>(64, 1, (dim, unused) -> newInstance(coefficientClass, dim));
+        }
+    };
 
     private final Class<F> coefficientClass;
     private final int dim;
@@ -34,25 +38,64 @@ public class VectorSpace<F extends FieldElement<F>> {
         return new Vector(this, Arrays.copyOf(coeffs, this.dim));
     }
 
-    public static <F extends FieldElement<F>> VectorSpace<F> of(Class<F> coefficientClass, int dim) {
-        final Tuple<Class<?>, Integer> key = Tuple.of(coefficientClass, dim);
-        final VectorSpace<?> cachedVal = CACHE.get(key);
-        if (cachedVal != null && cachedVal.coefficientClass == coefficientClass) {
-            @SuppressWarnings("unchecked")
-            VectorSpace<F> ret = (VectorSpace<F>) cachedVal;
-            return ret;
-        }
+    /**
+     * 係数配列からベクトルを得る。配列の検査・複製は行わないため、
+     * 外部から参照できない(このライブラリ内で作成した)配列のみ渡すこと。
+     */
+    Vector wrap(final F[] coeffs) {
+        return new Vector(this, coeffs);
+    }
 
-        VectorSpace<?> newInstance = new VectorSpace<>(coefficientClass, dim);
-        VectorSpace<?> isAbsent = CACHE.putIfAbsent(key, newInstance);
-        if (isAbsent != null) {
-            @SuppressWarnings("unchecked")
-            VectorSpace<F> registeredByOtherThread = (VectorSpace<F>) isAbsent;
-            return registeredByOtherThread;
+    /**
+     * 配列を共有するビュー。i番目の成分は{@code data[offset + i * stride]}である。
+     */
+    Vector view(final F[] data, final int offset, final int stride) {
+        return new Vector(this, data, offset, stride);
+    }
+
+    Class<F> coefficientClass() {
+        return this.coefficientClass;
+    }
+
+    /**
+     * 一次結合{@code Σ coeffs[i] * vectors[i]}。途中のベクトルを作らず、結果の係数配列だけを確保する。
+     *
+     * @throws AlgebraicException
+     *             ベクトルが1つもない場合(零ベクトルを得られないため)
+     */
+    public Vector linearCombination(final F[] coeffs, final Vector[] vectors) {
+        if (coeffs.length != vectors.length) {
+            throw new IllegalArgumentException(
+                    "coefficients and vectors have different length: " + coeffs.length + " != " + vectors.length);
+        }
+        if (vectors.length == 0) {
+            throw new AlgebraicException("cannot construct zero vector from empty combination");
         }
+        for (final Vector vector : vectors) {
+            if (vector.dim() != this.dim) {
+                throw new IllegalArgumentException(
+                        "vector has unmatch dimension: " + vector.dim() + ", need: " + this.dim);
+            }
+        }
+        final F[] result = Matrices.newArray(this.coefficientClass, this.dim);
+        for (int i = 0; i < this.dim; i++) {
+            final Accumulator<F> sum = coeffs[0].multiply(vectors[0].get(i)).accumulator();
+            for (int k = 1; k < vectors.length; k++) {
+                sum.addProduct(coeffs[k], vectors[k].get(i));
+            }
+            result[i] = sum.result();
+        }
+        return this.wrap(result);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static VectorSpace<?> newInstance(final Class<?> coefficientClass, final int dim) {
+        return new VectorSpace(coefficientClass, dim);
+    }
 
+    public static <F extends FieldElement<F>> VectorSpace<F> of(Class<F> coefficientClass, int dim) {
         @SuppressWarnings("unchecked")
-        VectorSpace<F> ret = (VectorSpace<F>) newInstance;
+        final VectorSpace<F> ret = (VectorSpace<F>) REGISTRY.get(coefficientClass).get(dim, 0);
         return ret;
 
     }
@@ -62,7 +105,7 @@ public class VectorSpace<F extends FieldElement<F>> {
         final Class<F> coefficientClass;
         try {
             @SuppressWarnings("unchecked")
-            final Class<F> coefficirntClass_ = (Class<F>) coeffs.getClass().getComponentType();
+            final Class<F> coefficientClass_ = (Class<F>) coeffs.getClass().getComponentType();
             coefficientClass = coefficientClass_;
         } catch (ClassCastException e) {
             throw new InternalError("casting array class compoenent type, but failed.", e);
@@ -88,10 +131,23 @@ public class VectorSpace<F extends FieldElement<F>> {
         return Objects.equals(this.coefficientClass, other.coefficientClass) && Objects.equals(this.dim, other.dim);
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.coefficientClass, this.dim);
+    }
+
     public class Vector implements ModuleElement<Vector, F> {
         private final VectorSpace<F> space;
-        private final F[] coeffs;
+        /**
+         * 係数を保持する配列。i番目の成分は{@code data[offset + i * stride]}にあり、行列と共有することがある。
+         */
+        private final F[] data;
+        private final int offset;
+        private final int stride;
+        /** 係数を詰めた配列。dataをそのまま使えない場合に初めて必要になった時点で作る */
+        private final AtomicReference<F[]> compact = new AtomicReference<>();
         private final AtomicReference<Vector> negate = new AtomicReference<>();
+        private final AtomicReference<Integer> hashCode = new AtomicReference<>();
 
         /**
          * 
@@ -101,8 +157,17 @@ public class VectorSpace<F extends FieldElement<F>> {
          *            係数配列。この配列インスタンスが直接フィールドに設定されるため、外部から参照できないインスタンスを設定すること。
          */
         private Vector(final VectorSpace<F> space, final F[] coeffs) {
+            this(space, coeffs, 0, 1);
+        }
+
+        private Vector(final VectorSpace<F> space, final F[] data, final int offset, final int stride) {
             this.space = space;
-            this.coeffs = coeffs;
+            this.data = data;
+            this.offset = offset;
+            this.stride = stride;
+            if (offset == 0 && stride == 1 && data.length == space.dim) {
+                this.compact.set(data);
+            }
         }
 
         /**
@@ -123,11 +188,34 @@ public class VectorSpace<F extends FieldElement<F>> {
             return this.space.dim;
         }
 
+        public F get(final int index) {
+            if (index < 0 || this.space.dim <= index) {
+                throw new IndexOutOfBoundsException(index + " is out of " + this.space.dim);
+            }
+            return this.data[this.offset + index * this.stride];
+        }
+
+        /**
+         * 係数を順に詰めた配列を返す。呼び出し側で書き換えないこと。
+         * 行列の行や列のビューでは初回に詰め直した配列を作って保持する。
+         */
+        F[] coefficients() {
+            if (this.compact.get() == null) {
+                final F[] coeffs = Matrices.newArray(this.space.coefficientClass, this.space.dim);
+                for (int i = 0; i < coeffs.length; i++) {
+                    coeffs[i] = this.data[this.offset + i * this.stride];
+                }
+                this.compact.compareAndSet(null, coeffs);
+            }
+            return this.compact.get();
+        }
+
         @Override
         public Vector add(final Vector other) {
-            F[] newCoeffs = Arrays.copyOf(this.coeffs, this.space.dim);
+            F[] newCoeffs = Arrays.copyOf(this.coefficients(), this.space.dim);
+            final F[] otherCoeffs = other.coefficients();
             for (int cnt = 0; cnt < this.space.dim; cnt++) {
-                newCoeffs[cnt] = newCoeffs[cnt].add(other.coeffs[cnt]);
+                newCoeffs[cnt] = newCoeffs[cnt].add(otherCoeffs[cnt]);
             }
             return getWith(newCoeffs);
         }
@@ -135,7 +223,7 @@ public class VectorSpace<F extends FieldElement<F>> {
         @Override
         public Vector negate() {
             if (this.negate.get() == null) {
-                F[] newCoeffs = Arrays.copyOf(this.coeffs, this.space.dim);
+                F[] newCoeffs = Arrays.copyOf(this.coefficients(), this.space.dim);
                 for (int cnt = 0; cnt < this.space.dim; cnt++) {
                     newCoeffs[cnt] = newCoeffs[cnt].negate();
                 }
@@ -155,16 +243,17 @@ public class VectorSpace<F extends FieldElement<F>> {
 
         @Override
         public Vector subtract(final Vector other) {
-            F[] newCoeffs = Arrays.copyOf(this.coeffs, this.space.dim);
+            F[] newCoeffs = Arrays.copyOf(this.coefficients(), this.space.dim);
+            final F[] otherCoeffs = other.coefficients();
             for (int cnt = 0; cnt < this.space.dim; cnt++) {
-                newCoeffs[cnt] = newCoeffs[cnt].subtract(other.coeffs[cnt]);
+                newCoeffs[cnt] = newCoeffs[cnt].subtract(otherCoeffs[cnt]);
             }
             return getWith(newCoeffs);
         }
 
         @Override
         public boolean isZero() {
-            for (F coeff : this.coeffs) {
+            for (F coeff : this.coefficients()) {
                 if (!coeff.isZero()) {
                     return false;
                 }
@@ -174,13 +263,43 @@ public class VectorSpace<F extends FieldElement<F>> {
 
         @Override
         public Vector scalarMultiply(final F scalar) {
-            F[] newCoeffs = Arrays.copyOf(this.coeffs, this.space.dim);
+            F[] newCoeffs = Arrays.copyOf(this.coefficients(), this.space.dim);
             for (int cnt = 0; cnt < this.space.dim; cnt++) {
                 newCoeffs[cnt] = newCoeffs[cnt].multiply(scalar);
             }
             return getWith(newCoeffs);
         }
 
+        /**
+         * 0でない成分だけを保持する{@link SparseVector}に変換する。
+         */
+        public SparseVector<F> toSparse() {
+            return SparseVector.of(this);
+        }
+
+        /**
+         * 内積{@code Σ this[i] * other[i]}。
+         *
+         * @throws AlgebraicException
+         *             0次元の場合(零元を得られないため)
+         */
+        public F dot(final Vector other) {
+            if (other.dim() != this.dim()) {
+                throw new IllegalArgumentException(
+                        "vector has unmatch dimension: " + other.dim() + ", need: " + this.dim());
+            }
+            if (this.dim() == 0) {
+                throw new AlgebraicException("cannot construct zero from 0-dimensional vector");
+            }
+            // 行列の行や列のビューでも詰め直さずに済むよう、添字から直接読む
+            final Accumulator<F> sum = this.data[this.offset].multiply(other.data[other.offset]).accumulator();
+            for (int cnt = 1; cnt < this.space.dim; cnt++) {
+                sum.addProduct(this.data[this.offset + cnt * this.stride],
+                        other.data[other.offset + cnt * other.stride]);
+            }
+            return sum.result();
+        }
+
         @Override
         public boolean equals(Object o) {
             if (o == null) {
@@ -196,19 +315,40 @@ public class VectorSpace<F extends FieldElement<F>> {
             if (!Objects.equals(this.space, other.space)) {
                 return false;
             }
-            return Arrays.deepEquals(this.coeffs, other.coeffs);
+            // 両方のハッシュ値が計算済みなら、異なる場合は走査せずに済む
+            final Integer thisHash = this.hashCode.get();
+            final Integer otherHash = other.hashCode.get();
+            if (thisHash != null && otherHash != null && thisHash.intValue() != otherHash.intValue()) {
+                return false;
+            }
+            for (int i = 0; i < this.space.dim; i++) {
+                if (!this.data[this.offset + i * this.stride].equals(other.data[other.offset + i * other.stride])) {
+                    return false;
+                }
+            }
+            return true;
         }
 
+        /**
+         * 次元と全成分から求めるハッシュ値。初回に計算して保持する。
+         */
         @Override
         public int hashCode() {
-            return this.space.hashCode() ^ this.coeffs.hashCode();
+            if (this.hashCode.get() == null) {
+                int hash = 1;
+                for (int i = 0; i < this.space.dim; i++) {
+                    hash = 31 * hash + this.data[this.offset + i * this.stride].hashCode();
+                }
+                this.hashCode.compareAndSet(null, this.space.hashCode() ^ hash);
+            }
+            return this.hashCode.get().intValue();
         }
 
         @Override
         public String toString() {
             StringBuilder builder = new StringBuilder("Vector: (");
             boolean first = true;
-            for (F coeff : this.coeffs) {
+            for (F coeff : this.coefficients()) {
                 if (first) {
                     first = false;
                 } else {
@@ -0,0 +1,137 @@
+package number.number;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.LongFunction;
+
+import number.algebra.AlgebraicException;
+import number.algebra.Matrices;
+
+/**
+ * 整数係数の行列に対する多剰余(multi-modular)演算。
+ *
+ * 結果の絶対値の上界から必要な個数の31bitの素数を選び、各素数を法とする像を
+ * {@link ModPrimeMatrix}の上で{@link Matrices#parallelPool()}により並列に計算して、
+ * 中国剰余定理で整数に復元する。途中で{@link MathInteger}の演算を行わないため、
+ * 係数が大きく密な行列では{@link Matrices.Matrix#determinant()}や{@link Matrices.Matrix#multiply}より高速になる。
+ */
+public final class IntegerMatrices {
+
+    /** 各素数は2^30より大きいので、1つあたり少なくとも30bit分の情報を持つ */
+    private static final int BITS_PER_PRIME = 30;
+
+    private IntegerMatrices() {
+    }
+
+    public static MathInteger determinant(final Matrices<MathInteger>.Matrix matrix) {
+        final int n = matrix.rowSize();
+        if (n != matrix.columnSize()) {
+            throw new AlgebraicException(
+                    "determinant is defined only for square matrix: (" + n + ", " + matrix.columnSize() + ")");
+        }
+        if (n == 0) {
+            throw new AlgebraicException("determinant of empty matrix is not supported");
+        }
+
+        // Hadamardの不等式 |det| <= Π_i ||row_i|| による上界
+        long bits = 0;
+        for (int i = 0; i < n; i++) {
+            BigInteger squareSum = BigInteger.ZERO;
+            for (int j = 0; j < n; j++) {
+                final BigInteger value = matrix.get(i, j).bigIntegerValue();
+                squareSum = squareSum.add(value.multiply(value));
+            }
+            if (squareSum.signum() == 0) {
+                return MathInteger.ZERO;
+            }
+            bits += (squareSum.bitLength() + 1) / 2;
+        }
+
+        final long[] primes = Modular.primes(primeCount(bits));
+        final long[][] images = forEachPrime(primes, (p) -> {
+            final PrimeField field = PrimeField.of(p);
+            return new long[] { ModPrimeMatrix.reduce(field, matrix).determinant() };
+        });
+
+        final long[] residues = new long[primes.length];
+        for (int i = 0; i < primes.length; i++) {
+            residues[i] = images[i][0];
+        }
+        return new Modular.ChineseRemainder(primes).reconstruct(residues);
+    }
+
+    public static Matrices<MathInteger>.Matrix multiply(final Matrices<MathInteger>.Matrix a,
+            final Matrices<MathInteger>.Matrix b) {
+        final int m = a.rowSize();
+        final int inner = a.columnSize();
+        final int n = b.columnSize();
+        if (inner != b.rowSize()) {
+            throw new IllegalArgumentException("not multiplicatable matrix this has column size " + inner
+                    + ", but other matrix has row size " + b.rowSize()
+                    + "(other must have row size equal to this column size)");
+        }
+
+        // |c_ij| <= inner * max|a| * max|b|
+        final long bits = maxBitLength(a) + maxBitLength(b) + BigInteger.valueOf(inner).bitLength();
+
+        final long[] primes = Modular.primes(primeCount(bits));
+        final long[][] images = forEachPrime(primes, (p) -> {
+            final PrimeField field = PrimeField.of(p);
+            final ModPrimeMatrix c = ModPrimeMatrix.reduce(field, a).multiply(ModPrimeMatrix.reduce(field, b));
+            final long[] image = new long[m * n];
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < n; j++) {
+                    image[i * n + j] = c.get(i, j);
+                }
+            }
+            return image;
+        });
+
+        final Modular.ChineseRemainder crt = new Modular.ChineseRemainder(primes);
+        final long[] residues = new long[primes.length];
+        final MathInteger[][] coeffs = new MathInteger[m][n];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                for (int k = 0; k < primes.length; k++) {
+                    residues[k] = images[k][i * n + j];
+                }
+                coeffs[i][j] = crt.reconstruct(residues);
+            }
+        }
+        return Matrices.of(MathInteger.class, m, n).getWith(coeffs);
+    }
+
+    /**
+     * 絶対値が2^bits未満の整数を符号込みで復元するのに必要な素数の個数。
+     */
+    private static int primeCount(final long bits) {
+        return (int) ((bits + 1) / BITS_PER_PRIME + 1);
+    }
+
+    private static long maxBitLength(final Matrices<MathInteger>.Matrix matrix) {
+        int max = 0;
+        for (int i = 0; i < matrix.rowSize(); i++) {
+            for (int j = 0; j < matrix.columnSize(); j++) {
+                max = Math.max(max, matrix.get(i, j).bigIntegerValue().bitLength());
+            }
+        }
+        return max;
+    }
+
+    private static long[][] forEachPrime(final long[] primes, final LongFunction<long[]> image) {
+        final ForkJoinPool pool = Matrices.parallelPool();
+        final List<ForkJoinTask<long[]>> tasks = new ArrayList<>(primes.length);
+        for (final long p : primes) {
+            tasks.add(pool.submit(() -> image.apply(p)));
+        }
+        final long[][] images = new long[primes.length][];
+        for (int i = 0; i < primes.length; i++) {
+            images[i] = tasks.get(i).join();
+        }
+        return images;
+    }
+
+}
@@ -1,61 +1,331 @@
 package number.number;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.math.BigInteger;
 
-import number.algebra.RingElement;
+import number.algebra.Accumulator;
+import number.algebra.IntegralDomainElement;
 
-public class MathInteger implements RingElement<MathInteger>, Comparable<MathInteger>, Serializable {
+public class MathInteger implements IntegralDomainElement<MathInteger>, Comparable<MathInteger>, Serializable {
 
     private static final long serialVersionUID = -4405178281199349765L;
 
-    private final BigInteger value;
+    /** 直列化形式は表現によらず、値をBigIntegerで保持していた以前の形式と同じにする */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("value", BigInteger.class)
+    };
 
-    static final MathInteger ZERO = MathInteger.valueOf(BigInteger.ZERO);
-    static final MathInteger ONE = MathInteger.valueOf(BigInteger.ONE);
+    /*
+     * longに収まる値はsmallに保持し、largeはnullとする。
+     * longに収まらない値のみlargeに保持する(このときsmallは使用しない)。
+     * 表現は値に対して一意なので、equals/hashCodeは表現ごとに比較してよい。
+     */
+    private final long small;
+    private final BigInteger large;
+    /** 直列化形式から読み込んだ値。readResolveで返す */
+    private transient MathInteger deserialized;
 
-    private MathInteger(final BigInteger value) {
-        this.value = value;
+    static final MathInteger ZERO = MathInteger.valueOf(0L);
+    static final MathInteger ONE = MathInteger.valueOf(1L);
+
+    private MathInteger(final long small) {
+        this.small = small;
+        this.large = null;
+    }
+
+    private MathInteger(final BigInteger large) {
+        this.small = 0L;
+        this.large = large;
     }
 
     public static MathInteger valueOf(final BigInteger i) {
+        if (i.bitLength() < Long.SIZE) {
+            return valueOf(i.longValue());
+        }
         return new MathInteger(i);
     }
 
     public static MathInteger valueOf(long i) {
-        return valueOf(BigInteger.valueOf(i));
+        if (-Cache.HIGH <= i && i <= Cache.HIGH) {
+            return Cache.VALUES[(int) i + Cache.HIGH];
+        }
+        return new MathInteger(i);
+    }
+
+    /**
+     * 絶対値が小さい値のインスタンスを共有するためのテーブル。
+     * 範囲はシステムプロパティ{@code number.number.MathInteger.cache.high}で変更できる(0, 1, -1は常に含まれる)。
+     */
+    private static final class Cache {
+
+        static final int HIGH = Math.max(1, Integer.getInteger("number.number.MathInteger.cache.high", 1024));
+
+        static final MathInteger[] VALUES = new MathInteger[2 * HIGH + 1];
+
+        static {
+            for (int i = 0; i < VALUES.length; i++) {
+                VALUES[i] = new MathInteger((long) (i - HIGH));
+            }
+        }
+
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        final ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("value", this.bigIntegerValue());
+        out.writeFields();
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        final BigInteger value = (BigInteger) in.readFields().get("value", null);
+        if (value == null) {
+            throw new InvalidObjectException("value is null");
+        }
+        this.deserialized = valueOf(value);
+    }
+
+    private Object readResolve() {
+        return this.deserialized;
+    }
+
+    boolean isSmall() {
+        return this.large == null;
+    }
+
+    /**
+     * {@link #isSmall()}がtrueのときのみ有効な値を返す。
+     */
+    long smallValue() {
+        return this.small;
+    }
+
+    public BigInteger bigIntegerValue() {
+        if (this.large == null) {
+            return BigInteger.valueOf(this.small);
+        }
+        return this.large;
+    }
+
+    public int signum() {
+        if (this.large == null) {
+            return Long.signum(this.small);
+        }
+        return this.large.signum();
     }
 
     @Override
     public MathInteger add(MathInteger other) {
-        return valueOf(this.value.add(other.value));
+        if (this.large == null && other.large == null) {
+            final long x = this.small;
+            final long y = other.small;
+            final long r = x + y;
+            // 符号の同じ値同士の加算で結果の符号が変わった場合のみoverflowしている
+            if (((x ^ r) & (y ^ r)) >= 0) {
+                return valueOf(r);
+            }
+        }
+        return valueOf(this.bigIntegerValue().add(other.bigIntegerValue()));
     }
 
     @Override
     public MathInteger negate() {
-        return valueOf(this.value.negate());
+        if (this.large == null && this.small != Long.MIN_VALUE) {
+            return valueOf(-this.small);
+        }
+        return valueOf(this.bigIntegerValue().negate());
     }
 
     @Override
     public MathInteger subtract(MathInteger other) {
-        return valueOf(this.value.subtract(other.value));
+        if (this.large == null && other.large == null) {
+            final long x = this.small;
+            final long y = other.small;
+            final long r = x - y;
+            // 符号の異なる値同士の減算で結果の符号がxと変わった場合のみoverflowしている
+            if (((x ^ y) & (x ^ r)) >= 0) {
+                return valueOf(r);
+            }
+        }
+        return valueOf(this.bigIntegerValue().subtract(other.bigIntegerValue()));
     }
 
     @Override
     public MathInteger multiply(MathInteger other) {
-        return valueOf(this.value.multiply(other.value));
+        if (this.large == null && other.large == null) {
+            final long x = this.small;
+            final long y = other.small;
+            final long lo = x * y;
+            final long hi = Math.multiplyHigh(x, y);
+            // 128bitの積の上位64bitが下位64bitの符号拡張になっていればlongに収まる
+            if (hi == (lo >> (Long.SIZE - 1))) {
+                return valueOf(lo);
+            }
+        }
+        return valueOf(this.bigIntegerValue().multiply(other.bigIntegerValue()));
+    }
+
+    @Override
+    public IntegerAccumulator accumulator() {
+        final IntegerAccumulator accumulator = new IntegerAccumulator();
+        accumulator.add(this);
+        return accumulator;
+    }
+
+    /**
+     * 128bitの符号付き整数に積和を累積し、溢れた分だけを{@link BigInteger}に退避する{@link Accumulator}。
+     * longに収まる値同士の積和では一時オブジェクトを作らない。
+     */
+    static final class IntegerAccumulator implements Accumulator<MathInteger> {
+
+        private static final BigInteger TWO_TO_64 = BigInteger.ONE.shiftLeft(Long.SIZE);
+
+        /** 累積値の下位部分(2の補数表現の128bit整数) */
+        private long hi;
+        private long lo;
+        /** 128bitに収まらなくなった分。なければnull */
+        private BigInteger spill;
+
+        IntegerAccumulator() {
+        }
+
+        @Override
+        public void add(final MathInteger value) {
+            if (value.large == null) {
+                this.add(value.small);
+            } else {
+                this.spill = this.spill == null ? value.large : this.spill.add(value.large);
+            }
+        }
+
+        @Override
+        public void addProduct(final MathInteger a, final MathInteger b) {
+            if (a.large == null && b.large == null) {
+                this.addProduct(a.small, b.small);
+            } else {
+                final BigInteger product = a.bigIntegerValue().multiply(b.bigIntegerValue());
+                this.spill = this.spill == null ? product : this.spill.add(product);
+            }
+        }
+
+        /**
+         * {@link #add(MathInteger)}のlong版。
+         */
+        void add(final long value) {
+            this.add128(value >> (Long.SIZE - 1), value);
+        }
+
+        /**
+         * {@link #addProduct(MathInteger, MathInteger)}のlong版。
+         */
+        void addProduct(final long a, final long b) {
+            this.add128(Math.multiplyHigh(a, b), a * b);
+        }
+
+        /**
+         * 累積値を{@code factor}倍する。
+         */
+        void multiply(final MathInteger factor) {
+            final MathInteger value = this.result().multiply(factor);
+            this.hi = 0L;
+            this.lo = 0L;
+            this.spill = null;
+            this.add(value);
+        }
+
+        private void add128(final long high, final long low) {
+            final long sumLow = this.lo + low;
+            final long carry = Long.compareUnsigned(sumLow, this.lo) < 0 ? 1L : 0L;
+            // highは積の上位64bitなので、carryを加えてもoverflowしない
+            final long addend = high + carry;
+            final long sumHigh = this.hi + addend;
+            if (((this.hi ^ sumHigh) & (addend ^ sumHigh)) < 0) {
+                // 128bitを超えるので、それまでの値を退避してから加える
+                this.spill = this.spill == null ? this.value128() : this.spill.add(this.value128());
+                this.hi = high;
+                this.lo = low;
+            } else {
+                this.hi = sumHigh;
+                this.lo = sumLow;
+            }
+        }
+
+        private BigInteger value128() {
+            final BigInteger low = BigInteger.valueOf(this.lo);
+            return BigInteger.valueOf(this.hi).shiftLeft(Long.SIZE).add(this.lo < 0 ? low.add(TWO_TO_64) : low);
+        }
+
+        @Override
+        public MathInteger result() {
+            if (this.spill == null && this.hi == (this.lo >> (Long.SIZE - 1))) {
+                return valueOf(this.lo);
+            }
+            final BigInteger value = this.spill == null ? this.value128() : this.spill.add(this.value128());
+            return valueOf(value);
+        }
+
+    }
+
+    /**
+     * 繰り返し二乗法による冪。longに収まる間はlongのまま計算する。
+     *
+     * @throws ArithmeticException
+     *             指数が負の場合
+     */
+    public MathInteger pow(final int exponent) {
+        if (exponent < 0) {
+            throw new ArithmeticException("negative exponent: " + exponent);
+        }
+        if (this.large == null) {
+            long result = 1L;
+            long base = this.small;
+            int e = exponent;
+            while (true) {
+                if ((e & 1) != 0) {
+                    final long lo = result * base;
+                    if (Math.multiplyHigh(result, base) != (lo >> (Long.SIZE - 1))) {
+                        break;
+                    }
+                    result = lo;
+                }
+                e >>>= 1;
+                if (e == 0) {
+                    return valueOf(result);
+                }
+                // 残りの指数が正なので、baseの二乗が溢れれば結果も溢れる
+                final long square = base * base;
+                if (Math.multiplyHigh(base, base) != (square >> (Long.SIZE - 1))) {
+                    break;
+                }
+                base = square;
+            }
+        }
+        return valueOf(this.bigIntegerValue().pow(exponent));
     }
 
     public MathInteger abs() {
-        if (this.compareTo(ZERO) < 0) {
+        if (this.signum() < 0) {
             return this.negate();
         } else {
             return this;
         }
     }
 
+    @Override
     public MathInteger divide(final MathInteger divisor) {
-        return valueOf(this.value.divide(divisor.value));
+        if (this.large == null && divisor.large == null) {
+            if (divisor.small == 0L) {
+                throw new ArithmeticException("BigInteger divide by zero");
+            }
+            if (this.small != Long.MIN_VALUE || divisor.small != -1L) {
+                return valueOf(this.small / divisor.small);
+            }
+        }
+        return valueOf(this.bigIntegerValue().divide(divisor.bigIntegerValue()));
     }
 
     public MathInteger max(final MathInteger other) {
@@ -75,12 +345,50 @@ public class MathInteger implements RingElement<MathInteger>, Comparable<MathInt
     }
 
     public MathInteger gcd(final MathInteger other) {
-        return valueOf(this.value.gcd(other.value));
+        if (this.large == null && other.large == null && this.small != Long.MIN_VALUE
+                && other.small != Long.MIN_VALUE) {
+            return valueOf(gcd(Math.abs(this.small), Math.abs(other.small)));
+        }
+        return valueOf(this.bigIntegerValue().gcd(other.bigIntegerValue()));
+    }
+
+    /**
+     * 非負のlong値同士の最大公約数をbinary GCDで求める。
+     */
+    static long gcd(long a, long b) {
+        if (a == 0L) {
+            return b;
+        }
+        if (b == 0L) {
+            return a;
+        }
+        final int shift = Long.numberOfTrailingZeros(a | b);
+        a >>= Long.numberOfTrailingZeros(a);
+        do {
+            b >>= Long.numberOfTrailingZeros(b);
+            if (a > b) {
+                final long t = b;
+                b = a;
+                a = t;
+            }
+            b -= a;
+        } while (b != 0L);
+        return a << shift;
     }
 
     @Override
     public int compareTo(final MathInteger other) {
-        return this.value.compareTo(other.value);
+        if (this.large == null && other.large == null) {
+            return Long.compare(this.small, other.small);
+        }
+        if (this.large == null) {
+            // longに収まらない値は必ずlongに収まる値より絶対値が大きい
+            return -other.large.signum();
+        }
+        if (other.large == null) {
+            return this.large.signum();
+        }
+        return this.large.compareTo(other.large);
     }
 
     @Override
@@ -95,30 +403,45 @@ public class MathInteger implements RingElement<MathInteger>, Comparable<MathInt
             return false;
         }
         MathInteger other = (MathInteger) o;
-        return this.value.equals(other.value);
+        if (this.large == null || other.large == null) {
+            return this.large == other.large && this.small == other.small;
+        }
+        return this.large.equals(other.large);
     }
 
     @Override
     public int hashCode() {
-        return this.value.hashCode();
+        if (this.large == null) {
+            return Long.hashCode(this.small);
+        }
+        return this.large.hashCode();
     }
 
     @Override
     public String toString() {
-        return this.value.toString();
+        if (this.large == null) {
+            return Long.toString(this.small);
+        }
+        return this.large.toString();
     }
 
     @Override
     public boolean isZero() {
-        return this.equals(ZERO);
+        // 0のインスタンスは常にキャッシュされたものが使われる
+        return this == ZERO;
+    }
+
+    @Override
+    public boolean isOne() {
+        return this == ONE;
     }
 
     public boolean isPositive() {
-        return this.compareTo(ZERO) > 0;
+        return this.signum() > 0;
     }
 
     public boolean isNegative() {
-        return this.compareTo(ZERO) < 0;
+        return this.signum() < 0;
     }
 
 }
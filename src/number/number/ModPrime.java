@@ -0,0 +1,119 @@
+package number.number;
+
+import java.io.Serializable;
+
+import number.algebra.FieldElement;
+
+/**
+ * 素数pを法とする剰余体 {@link PrimeField} の元。
+ *
+ * 法の異なる元同士の演算は{@link IllegalArgumentException}となる。
+ */
+public final class ModPrime implements FieldElement<ModPrime>, Serializable {
+
+    private static final long serialVersionUID = 4905384466632309515L;
+
+    private final PrimeField field;
+    private final int value;
+
+    private ModPrime(final PrimeField field, final int value) {
+        this.field = field;
+        this.value = value;
+    }
+
+    /**
+     * @param value
+     *            {@code [0, p)}に正規化済みの値
+     */
+    static ModPrime of(final PrimeField field, final long value) {
+        return new ModPrime(field, (int) value);
+    }
+
+    public PrimeField field() {
+        return this.field;
+    }
+
+    /**
+     * {@code [0, p)}の代表元。
+     */
+    public long longValue() {
+        return this.value;
+    }
+
+    private void checkField(final ModPrime other) {
+        if (this.field != other.field && !this.field.equals(other.field)) {
+            throw new IllegalArgumentException(
+                    "cannot operate on elements of different fields " + this.field + " != " + other.field);
+        }
+    }
+
+    @Override
+    public ModPrime add(final ModPrime other) {
+        this.checkField(other);
+        return of(this.field, this.field.add(this.value, other.value));
+    }
+
+    @Override
+    public ModPrime negate() {
+        return of(this.field, this.field.negate(this.value));
+    }
+
+    @Override
+    public ModPrime subtract(final ModPrime other) {
+        this.checkField(other);
+        return of(this.field, this.field.subtract(this.value, other.value));
+    }
+
+    @Override
+    public ModPrime multiply(final ModPrime other) {
+        this.checkField(other);
+        return of(this.field, this.field.multiply(this.value, other.value));
+    }
+
+    @Override
+    public ModPrime invert() {
+        return of(this.field, this.field.invert(this.value));
+    }
+
+    @Override
+    public ModPrime divide(final ModPrime other) {
+        this.checkField(other);
+        return of(this.field, this.field.multiply(this.value, this.field.invert(other.value)));
+    }
+
+    @Override
+    public boolean isZero() {
+        return this.value == 0;
+    }
+
+    @Override
+    public boolean isOne() {
+        return this.value == 1;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null) {
+            return false;
+        }
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof ModPrime)) {
+            return false;
+        }
+        final ModPrime other = (ModPrime) o;
+        return this.value == other.value && this.field.equals(other.field);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.value ^ Integer.rotateLeft(this.field.hashCode(), 16);
+    }
+
+    @Override
+    public String toString() {
+        return Integer.toString(this.value);
+    }
+
+}
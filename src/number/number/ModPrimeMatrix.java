@@ -0,0 +1,343 @@
+package number.number;
+
+import java.util.Arrays;
+
+import number.algebra.AlgebraicException;
+import number.algebra.Matrices;
+
+/**
+ * {@link PrimeField}を係数とする行列。
+ *
+ * 係数を{@link ModPrime}のオブジェクトではなく行優先の{@code int}配列で保持し、
+ * 演算はすべてプリミティブのまま({@link PrimeField}のBarrett還元を用いて)行う。
+ * {@link Matrices}の汎用のアルゴリズムを使う場合は{@link #toMatrix()}で相互に変換できる。
+ */
+public final class ModPrimeMatrix {
+
+    private final PrimeField field;
+    private final int rowSize;
+    private final int columnSize;
+    /** 係数を行優先で並べた配列。各値は{@code [0, p)}に正規化済み */
+    private final int[] values;
+
+    private ModPrimeMatrix(final PrimeField field, final int rowSize, final int columnSize, final int[] values) {
+        this.field = field;
+        this.rowSize = rowSize;
+        this.columnSize = columnSize;
+        this.values = values;
+    }
+
+    public static ModPrimeMatrix of(final PrimeField field, final long[][] values) {
+        final int rows = values.length;
+        final int columns = rows == 0 ? 0 : values[0].length;
+        final int[] reduced = new int[rows * columns];
+        for (int i = 0; i < rows; i++) {
+            if (values[i].length != columns) {
+                throw new IllegalArgumentException("coefficients has row " + i + " that has unmmatch column size: "
+                        + values[i].length + ", need: " + columns);
+            }
+            for (int j = 0; j < columns; j++) {
+                reduced[i * columns + j] = (int) field.reduce(values[i][j]);
+            }
+        }
+        return new ModPrimeMatrix(field, rows, columns, reduced);
+    }
+
+    public static ModPrimeMatrix of(final PrimeField field, final Matrices<ModPrime>.Matrix matrix) {
+        final int rows = matrix.rowSize();
+        final int columns = matrix.columnSize();
+        final int[] values = new int[rows * columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                final ModPrime value = matrix.get(i, j);
+                if (!value.field().equals(field)) {
+                    throw new IllegalArgumentException(
+                            "coefficient (" + i + ", " + j + ") is not an element of " + field + ": " + value.field());
+                }
+                values[i * columns + j] = (int) value.longValue();
+            }
+        }
+        return new ModPrimeMatrix(field, rows, columns, values);
+    }
+
+    /**
+     * 整数行列の各成分をpで割った剰余の行列。
+     */
+    public static ModPrimeMatrix reduce(final PrimeField field, final Matrices<MathInteger>.Matrix matrix) {
+        final int rows = matrix.rowSize();
+        final int columns = matrix.columnSize();
+        final int[] values = new int[rows * columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                values[i * columns + j] = (int) field.reduce(matrix.get(i, j));
+            }
+        }
+        return new ModPrimeMatrix(field, rows, columns, values);
+    }
+
+    public PrimeField field() {
+        return this.field;
+    }
+
+    public int rowSize() {
+        return this.rowSize;
+    }
+
+    public int columnSize() {
+        return this.columnSize;
+    }
+
+    /**
+     * (row, column)成分の{@code [0, p)}の代表元。
+     */
+    public long get(final int row, final int column) {
+        if (row < 0 || this.rowSize <= row || column < 0 || this.columnSize <= column) {
+            throw new IndexOutOfBoundsException(
+                    "(" + row + ", " + column + ") is out of (" + this.rowSize + ", " + this.columnSize + ")");
+        }
+        return this.values[row * this.columnSize + column];
+    }
+
+    public Matrices<ModPrime>.Matrix toMatrix() {
+        final ModPrime[][] coeffs = new ModPrime[this.rowSize][this.columnSize];
+        for (int i = 0; i < this.rowSize; i++) {
+            for (int j = 0; j < this.columnSize; j++) {
+                coeffs[i][j] = ModPrime.of(this.field, this.values[i * this.columnSize + j]);
+            }
+        }
+        return Matrices.of(ModPrime.class, this.rowSize, this.columnSize).getWith(coeffs);
+    }
+
+    private void checkSameShape(final ModPrimeMatrix other) {
+        if (!this.field.equals(other.field)) {
+            throw new IllegalArgumentException(
+                    "cannot operate on matrices over different fields " + this.field + " != " + other.field);
+        }
+        if (this.rowSize != other.rowSize || this.columnSize != other.columnSize) {
+            throw new IllegalArgumentException("matrix cannot add to different size (" + this.rowSize + ", "
+                    + this.columnSize + ") != (" + other.rowSize + ", " + other.columnSize + ")");
+        }
+    }
+
+    public ModPrimeMatrix add(final ModPrimeMatrix other) {
+        this.checkSameShape(other);
+        final int[] result = new int[this.values.length];
+        for (int idx = 0; idx < result.length; idx++) {
+            result[idx] = (int) this.field.add(this.values[idx], other.values[idx]);
+        }
+        return new ModPrimeMatrix(this.field, this.rowSize, this.columnSize, result);
+    }
+
+    public ModPrimeMatrix subtract(final ModPrimeMatrix other) {
+        this.checkSameShape(other);
+        final int[] result = new int[this.values.length];
+        for (int idx = 0; idx < result.length; idx++) {
+            result[idx] = (int) this.field.subtract(this.values[idx], other.values[idx]);
+        }
+        return new ModPrimeMatrix(this.field, this.rowSize, this.columnSize, result);
+    }
+
+    public ModPrimeMatrix negate() {
+        final int[] result = new int[this.values.length];
+        for (int idx = 0; idx < result.length; idx++) {
+            result[idx] = (int) this.field.negate(this.values[idx]);
+        }
+        return new ModPrimeMatrix(this.field, this.rowSize, this.columnSize, result);
+    }
+
+    public ModPrimeMatrix scalarMultiply(final long scalar) {
+        final long s = this.field.reduce(scalar);
+        final int[] result = new int[this.values.length];
+        for (int idx = 0; idx < result.length; idx++) {
+            result[idx] = (int) this.field.multiply(this.values[idx], s);
+        }
+        return new ModPrimeMatrix(this.field, this.rowSize, this.columnSize, result);
+    }
+
+    public ModPrimeMatrix multiply(final ModPrimeMatrix other) {
+        if (!this.field.equals(other.field)) {
+            throw new IllegalArgumentException(
+                    "cannot operate on matrices over different fields " + this.field + " != " + other.field);
+        }
+        if (this.columnSize != other.rowSize) {
+            throw new IllegalArgumentException("not multiplicatable matrix this has column size " + this.columnSize
+                    + ", but other matrix has row size " + other.rowSize
+                    + "(other must have row size equal to this column size)");
+        }
+        final int m = this.rowSize;
+        final int inner = this.columnSize;
+        final int n = other.columnSize;
+        final long p = this.field.modulus();
+        // 剰余同士の積はp^2未満なので、累積値をp^2未満に保てば加算でoverflowしない
+        final long pp = p * p;
+        final int[] result = new int[m * n];
+        final long[] row = new long[n];
+        for (int i = 0; i < m; i++) {
+            Arrays.fill(row, 0L);
+            for (int k = 0; k < inner; k++) {
+                final long aik = this.values[i * inner + k];
+                if (aik == 0) {
+                    continue;
+                }
+                final int bOffset = k * n;
+                for (int j = 0; j < n; j++) {
+                    long acc = row[j] + aik * other.values[bOffset + j];
+                    if (acc >= pp) {
+                        acc -= pp;
+                    }
+                    row[j] = acc;
+                }
+            }
+            for (int j = 0; j < n; j++) {
+                result[i * n + j] = (int) this.field.reduceProduct(row[j]);
+            }
+        }
+        return new ModPrimeMatrix(this.field, m, n, result);
+    }
+
+    /**
+     * 行列式の{@code [0, p)}の代表元。
+     */
+    public long determinant() {
+        if (this.rowSize != this.columnSize) {
+            throw new AlgebraicException("determinant is defined only for square matrix: (" + this.rowSize + ", "
+                    + this.columnSize + ")");
+        }
+        final long[] a = this.toLongArray(this.columnSize);
+        final long[] determinant = { 1 };
+        final int rank = rowReduce(this.field, a, this.rowSize, this.columnSize, this.columnSize, false, determinant);
+        return rank == this.rowSize ? determinant[0] : 0;
+    }
+
+    public int rank() {
+        final long[] a = this.toLongArray(this.columnSize);
+        return rowReduce(this.field, a, this.rowSize, this.columnSize, this.columnSize, false, null);
+    }
+
+    /**
+     * @throws AlgebraicException
+     *             正方行列でない場合、特異な場合
+     */
+    public ModPrimeMatrix inverse() {
+        final int n = this.rowSize;
+        if (n != this.columnSize) {
+            throw new AlgebraicException(
+                    "inverse is defined only for square matrix: (" + n + ", " + this.columnSize + ")");
+        }
+        // 拡大係数行列 [A | I] を既約行階段形にする
+        final int columns = 2 * n;
+        final long[] a = this.toLongArray(columns);
+        for (int i = 0; i < n; i++) {
+            a[i * columns + n + i] = 1;
+        }
+        if (rowReduce(this.field, a, n, columns, n, true, null) != n) {
+            throw new AlgebraicException("matrix is singular");
+        }
+        final int[] result = new int[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                result[i * n + j] = (int) a[i * columns + n + j];
+            }
+        }
+        return new ModPrimeMatrix(this.field, n, n, result);
+    }
+
+    /**
+     * 係数を行あたり{@code columns}個の幅の{@code long}配列に写す(余った列は0)。
+     */
+    private long[] toLongArray(final int columns) {
+        final long[] a = new long[this.rowSize * columns];
+        for (int i = 0; i < this.rowSize; i++) {
+            for (int j = 0; j < this.columnSize; j++) {
+                a[i * columns + j] = this.values[i * this.columnSize + j];
+            }
+        }
+        return a;
+    }
+
+    /**
+     * 行基本変形により階段形({@code reduced}がtrueなら既約行階段形)に変形し、階数を返す。
+     * 軸は{@code [0, pivotColumns)}の列からのみ選ぶ。{@code determinant}がnullでなければ、
+     * 軸の積と行の入れ替えの符号を{@code determinant[0]}に掛ける。
+     */
+    private static int rowReduce(final PrimeField field, final long[] a, final int rows, final int columns,
+            final int pivotColumns, final boolean reduced, final long[] determinant) {
+        int rank = 0;
+        for (int column = 0; column < pivotColumns && rank < rows; column++) {
+            int pivotRow = -1;
+            for (int row = rank; row < rows; row++) {
+                if (a[row * columns + column] != 0) {
+                    pivotRow = row;
+                    break;
+                }
+            }
+            if (pivotRow < 0) {
+                continue;
+            }
+            final int pivotOffset = rank * columns;
+            if (pivotRow != rank) {
+                final int offset = pivotRow * columns;
+                for (int j = column; j < columns; j++) {
+                    final long tmp = a[pivotOffset + j];
+                    a[pivotOffset + j] = a[offset + j];
+                    a[offset + j] = tmp;
+                }
+                if (determinant != null) {
+                    determinant[0] = field.negate(determinant[0]);
+                }
+            }
+            final long pivot = a[pivotOffset + column];
+            if (determinant != null) {
+                determinant[0] = field.multiply(determinant[0], pivot);
+            }
+            final long inverse = field.invert(pivot);
+            if (reduced) {
+                for (int j = column; j < columns; j++) {
+                    a[pivotOffset + j] = field.multiply(a[pivotOffset + j], inverse);
+                }
+            }
+            for (int row = reduced ? 0 : rank + 1; row < rows; row++) {
+                if (row == rank) {
+                    continue;
+                }
+                final int offset = row * columns;
+                if (a[offset + column] == 0) {
+                    continue;
+                }
+                final long factor = reduced ? a[offset + column] : field.multiply(a[offset + column], inverse);
+                for (int j = column; j < columns; j++) {
+                    a[offset + j] = field.subtract(a[offset + j], field.multiply(factor, a[pivotOffset + j]));
+                }
+            }
+            rank++;
+        }
+        return rank;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ModPrimeMatrix)) {
+            return false;
+        }
+        final ModPrimeMatrix other = (ModPrimeMatrix) obj;
+        return this.field.equals(other.field) && this.rowSize == other.rowSize
+                && this.columnSize == other.columnSize && Arrays.equals(this.values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.field.hashCode() ^ Arrays.hashCode(this.values);
+    }
+
+    @Override
+    public String toString() {
+        return this.toMatrix().toString();
+    }
+
+}
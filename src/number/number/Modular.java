@@ -0,0 +1,133 @@
+package number.number;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * 多剰余演算のための31bitの素数の列と、中国剰余定理による復元。
+ */
+final class Modular {
+
+    private static final long[] NO_PRIMES = new long[0];
+
+    /** 2^31より小さい素数を大きい順に並べたもの。必要に応じて延長する。 */
+    private static volatile long[] primes = NO_PRIMES;
+
+    private Modular() {
+    }
+
+    /**
+     * 2^31より小さい素数を大きい順に{@code count}個返す。いずれも2^30より大きい。
+     */
+    static long[] primes(final int count) {
+        long[] current = primes;
+        if (current.length < count) {
+            synchronized (Modular.class) {
+                current = primes;
+                if (current.length < count) {
+                    final long[] extended = Arrays.copyOf(current, Math.max(count, current.length * 2));
+                    long candidate = current.length == 0 ? (1L << 31) - 1 : current[current.length - 1] - 2;
+                    for (int i = current.length; i < extended.length; i++) {
+                        while (!BigInteger.valueOf(candidate).isProbablePrime(64)) {
+                            candidate -= 2;
+                        }
+                        extended[i] = candidate;
+                        candidate -= 2;
+                    }
+                    primes = extended;
+                    current = extended;
+                }
+            }
+        }
+        return Arrays.copyOf(current, count);
+    }
+
+    /**
+     * 拡張Euclidの互除法による逆元。
+     */
+    static long inverse(final long a, final long p) {
+        long r0 = p;
+        long r1 = a;
+        long s0 = 0;
+        long s1 = 1;
+        while (r1 != 0) {
+            final long q = r0 / r1;
+            final long r2 = r0 - q * r1;
+            r0 = r1;
+            r1 = r2;
+            final long s2 = s0 - q * s1;
+            s0 = s1;
+            s1 = s2;
+        }
+        if (r0 != 1) {
+            throw new ArithmeticException(a + " is not invertible modulo " + p);
+        }
+        return s0 < 0 ? s0 + p : s0;
+    }
+
+    /**
+     * 互いに素な法の組に対する中国剰余定理による復元(Garnerの方法)。
+     * 法の組を固定して係数を前計算しておき、多数の値の復元に使い回す。
+     */
+    static final class ChineseRemainder {
+
+        private final long[] moduli;
+        /** {@code inverses[i]}は{@code moduli[0] * ... * moduli[i - 1]}の法{@code moduli[i]}での逆元 */
+        private final long[] inverses;
+        private final BigInteger[] radixes;
+        private final BigInteger halfProduct;
+        private final BigInteger product;
+
+        ChineseRemainder(final long[] moduli) {
+            this.moduli = moduli.clone();
+            this.inverses = new long[moduli.length];
+            this.radixes = new BigInteger[moduli.length];
+            BigInteger product = BigInteger.ONE;
+            for (int i = 0; i < moduli.length; i++) {
+                final long p = moduli[i];
+                long prefix = 1;
+                for (int j = 0; j < i; j++) {
+                    prefix = prefix * moduli[j] % p;
+                }
+                this.inverses[i] = inverse(prefix, p);
+                this.radixes[i] = product;
+                product = product.multiply(BigInteger.valueOf(p));
+            }
+            this.product = product;
+            this.halfProduct = product.shiftRight(1);
+        }
+
+        /**
+         * 各法での剰余から、絶対値が法の積の半分以下の整数を復元する。
+         */
+        MathInteger reconstruct(final long[] residues) {
+            final int count = this.moduli.length;
+            // 混合基数表示の各桁を求める
+            final long[] digits = new long[count];
+            for (int i = 0; i < count; i++) {
+                final long p = this.moduli[i];
+                long value = 0;
+                for (int j = i - 1; j >= 0; j--) {
+                    value = (value * (this.moduli[j] % p) + digits[j]) % p;
+                }
+                long digit = (residues[i] - value) % p;
+                if (digit < 0) {
+                    digit += p;
+                }
+                digits[i] = digit * this.inverses[i] % p;
+            }
+            BigInteger result = BigInteger.ZERO;
+            for (int i = 0; i < count; i++) {
+                if (digits[i] != 0) {
+                    result = result.add(this.radixes[i].multiply(BigInteger.valueOf(digits[i])));
+                }
+            }
+            if (result.compareTo(this.halfProduct) > 0) {
+                result = result.subtract(this.product);
+            }
+            return MathInteger.valueOf(result);
+        }
+
+    }
+
+}
@@ -0,0 +1,138 @@
+package number.number;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+
+/**
+ * 2^31未満の素数pを法とする剰余体 Z/pZ。
+ *
+ * 元は{@code [0, p)}の{@code long}として扱い、積の剰余はBarrettの方法で除算を使わずに求める。
+ * {@link ModPrime}や{@link ModPrimeMatrix}はこのクラスのプリミティブ演算を用いる。
+ */
+public final class PrimeField implements Serializable {
+
+    private static final long serialVersionUID = -1520457829360843542L;
+
+    private final long p;
+    /** Barrettの方法の定数 floor((2^64 - 1) / p)。p >= 2なので符号付きlongに収まる */
+    private final long barrett;
+
+    private PrimeField(final long p) {
+        this.p = p;
+        this.barrett = Long.divideUnsigned(-1L, p);
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             pが2^31未満の素数でない場合
+     */
+    public static PrimeField of(final long p) {
+        if (p < 2 || p >= (1L << 31) || !BigInteger.valueOf(p).isProbablePrime(64)) {
+            throw new IllegalArgumentException("modulus must be a prime less than 2^31: " + p);
+        }
+        return new PrimeField(p);
+    }
+
+    public long modulus() {
+        return this.p;
+    }
+
+    public ModPrime valueOf(final long value) {
+        return ModPrime.of(this, this.reduce(value));
+    }
+
+    public ModPrime valueOf(final MathInteger value) {
+        return ModPrime.of(this, this.reduce(value));
+    }
+
+    public ModPrime zero() {
+        return ModPrime.of(this, 0);
+    }
+
+    public ModPrime one() {
+        return ModPrime.of(this, 1);
+    }
+
+    /**
+     * 任意のlong値の剰余。
+     */
+    public long reduce(final long value) {
+        return Math.floorMod(value, this.p);
+    }
+
+    public long reduce(final MathInteger value) {
+        if (value.isSmall()) {
+            return this.reduce(value.smallValue());
+        }
+        return value.bigIntegerValue().mod(BigInteger.valueOf(this.p)).longValue();
+    }
+
+    /**
+     * 0以上p^2未満の値の剰余をBarrettの方法で求める。
+     */
+    long reduceProduct(final long x) {
+        final long q = Math.multiplyHigh(x, this.barrett);
+        long r = x - q * this.p;
+        // qの誤差は高々2なので、補正は2回までで済む
+        while (r >= this.p) {
+            r -= this.p;
+        }
+        return r;
+    }
+
+    public long add(final long a, final long b) {
+        final long sum = a + b;
+        return sum >= this.p ? sum - this.p : sum;
+    }
+
+    public long subtract(final long a, final long b) {
+        final long difference = a - b;
+        return difference < 0 ? difference + this.p : difference;
+    }
+
+    public long negate(final long a) {
+        return a == 0 ? 0 : this.p - a;
+    }
+
+    public long multiply(final long a, final long b) {
+        return this.reduceProduct(a * b);
+    }
+
+    /**
+     * 拡張Euclidの互除法による逆元。
+     *
+     * @throws ArithmeticException
+     *             aが0の場合
+     */
+    public long invert(final long a) {
+        if (a == 0) {
+            throw new ArithmeticException("division by zero");
+        }
+        return Modular.inverse(a, this.p);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof PrimeField)) {
+            return false;
+        }
+        return this.p == ((PrimeField) obj).p;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.p);
+    }
+
+    @Override
+    public String toString() {
+        return "GF(" + this.p + ")";
+    }
+
+}
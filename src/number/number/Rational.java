@@ -1,51 +1,185 @@
 package number.number;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.math.BigInteger;
 
+import number.algebra.Accumulator;
 import number.algebra.FieldElement;
 
 public class Rational implements FieldElement<Rational>, Comparable<Rational>, Serializable {
 
     private static final long serialVersionUID = 7125251676225058831L;
-    public static final Rational ZERO = Rational.valueOf(MathInteger.ZERO, MathInteger.ONE);
-    public static final Rational ONE = Rational.valueOf(MathInteger.ONE, MathInteger.ONE);
 
+    /** 直列化形式は表現によらず、分子・分母をMathIntegerで保持していた以前の形式と同じにする */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("num", MathInteger.class),
+        new ObjectStreamField("den", MathInteger.class)
+    };
+    public static final Rational ZERO = Rational.ofReduced(0L, 1L);
+    public static final Rational ONE = Rational.ofReduced(1L, 1L);
+
+    /*
+     * 分子・分母がともにlongに収まる場合はn/dに保持し、num/denはnullとする。
+     * いずれかがlongに収まらない場合のみnum/denに保持する。
+     * どちらの表現でも既約かつ分母は正とし、表現は値に対して一意になるようにする。
+     */
+    private final long n;
+    private final long d;
     private final MathInteger num;
     private final MathInteger den;
+    /** 直列化形式から読み込んだ値。readResolveで返す */
+    private transient Rational deserialized;
+
+    private Rational(final long n, final long d) {
+        this.n = n;
+        this.d = d;
+        this.num = null;
+        this.den = null;
+    }
 
     private Rational(final MathInteger num, final MathInteger den) {
-        if (den.compareTo(MathInteger.ZERO) == 0) {
+        this.n = 0L;
+        this.d = 0L;
+        this.num = num;
+        this.den = den;
+    }
+
+    /**
+     * 既約かつ分母が正であることが分かっている分子・分母からインスタンスを得る。
+     */
+    private static Rational ofReduced(final long n, final long d) {
+        if (d == 1L) {
+            if (-Cache.HIGH <= n && n <= Cache.HIGH) {
+                return Cache.INTEGERS[(int) n + Cache.HIGH];
+            }
+        } else if (d <= Cache.DENOMINATOR_HIGH && -Cache.NUMERATOR_HIGH <= n && n <= Cache.NUMERATOR_HIGH) {
+            return Cache.FRACTIONS[(int) d - 2][(int) n + Cache.NUMERATOR_HIGH];
+        }
+        return new Rational(n, d);
+    }
+
+    /**
+     * 既約かつ分母が正であることが分かっている分子・分母からインスタンスを得る。
+     */
+    private static Rational ofReduced(final MathInteger num, final MathInteger den) {
+        if (num.isSmall() && den.isSmall()) {
+            return ofReduced(num.smallValue(), den.smallValue());
+        }
+        return new Rational(num, den);
+    }
+
+    /**
+     * 分子・分母の小さい値のインスタンスを共有するためのテーブル。
+     * 整数は絶対値が{@code number.number.Rational.cache.high}以下のもの、
+     * それ以外は分母が{@code number.number.Rational.cache.denominator}以下かつ
+     * 分子の絶対値が{@code number.number.Rational.cache.numerator}以下のものを保持する。
+     */
+    private static final class Cache {
+
+        static final int HIGH = Math.max(1, Integer.getInteger("number.number.Rational.cache.high", 1024));
+        static final int DENOMINATOR_HIGH = Math.max(1,
+                Integer.getInteger("number.number.Rational.cache.denominator", 16));
+        static final int NUMERATOR_HIGH = Math.max(0, Integer.getInteger("number.number.Rational.cache.numerator", 64));
+
+        static final Rational[] INTEGERS = new Rational[2 * HIGH + 1];
+        static final Rational[][] FRACTIONS = new Rational[DENOMINATOR_HIGH - 1][2 * NUMERATOR_HIGH + 1];
+
+        static {
+            for (int i = 0; i < INTEGERS.length; i++) {
+                INTEGERS[i] = new Rational((long) (i - HIGH), 1L);
+            }
+            // 既約でない組はofReducedに渡されることがないので埋めない
+            for (int d = 2; d <= DENOMINATOR_HIGH; d++) {
+                for (int n = -NUMERATOR_HIGH; n <= NUMERATOR_HIGH; n++) {
+                    if (MathInteger.gcd(Math.abs(n), d) == 1L) {
+                        FRACTIONS[d - 2][n + NUMERATOR_HIGH] = new Rational((long) n, (long) d);
+                    }
+                }
+            }
+        }
+
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        final ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("num", this.numerator());
+        fields.put("den", this.denominator());
+        out.writeFields();
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        final ObjectInputStream.GetField fields = in.readFields();
+        final MathInteger num = (MathInteger) fields.get("num", null);
+        final MathInteger den = (MathInteger) fields.get("den", null);
+        if (num == null || den == null) {
+            throw new InvalidObjectException("numerator or denominator is null");
+        }
+        if (!den.isPositive()) {
+            throw new InvalidObjectException("denominator must be positive: " + den);
+        }
+        // 既約でない組が来ても共有インスタンスの表を引かないよう、valueOfで約分してから返す
+        this.deserialized = valueOf(num, den);
+    }
+
+    private Object readResolve() {
+        return this.deserialized;
+    }
+
+    private static Rational reduce(final long n, final long d) {
+        if (d == 0L) {
             throw new ArithmeticException("division by zero");
         }
-        if (num.compareTo(MathInteger.ZERO) == 0) {
-            this.num = MathInteger.ZERO;
-            this.den = MathInteger.ONE;
+        if (n == 0L) {
+            return ZERO;
+        }
+        if (n == Long.MIN_VALUE || d == Long.MIN_VALUE) {
+            return valueOf(MathInteger.valueOf(n), MathInteger.valueOf(d));
+        }
+        final long gcd = MathInteger.gcd(Math.abs(n), Math.abs(d));
+        if (d > 0L) {
+            return ofReduced(n / gcd, d / gcd);
         } else {
-            final MathInteger gcd = num.gcd(den);
-            if (den.isPositive()) {
-                this.num = num.divide(gcd);
-                this.den = den.divide(gcd);
-            } else {
-                this.num = num.negate().divide(gcd);
-                this.den = den.negate().divide(gcd);
-            }
+            return ofReduced(-n / gcd, -d / gcd);
         }
     }
 
     public static Rational valueOf(final MathInteger num, final MathInteger den) {
-        return new Rational(num, den);
+        if (num.isSmall() && den.isSmall()) {
+            final long n = num.smallValue();
+            final long d = den.smallValue();
+            if (n != Long.MIN_VALUE && d != Long.MIN_VALUE) {
+                return reduce(n, d);
+            }
+        }
+        if (den.isZero()) {
+            throw new ArithmeticException("division by zero");
+        }
+        if (num.isZero()) {
+            return ZERO;
+        }
+        final MathInteger gcd = num.gcd(den);
+        if (den.isPositive()) {
+            return ofReduced(num.divide(gcd), den.divide(gcd));
+        } else {
+            return ofReduced(num.negate().divide(gcd), den.negate().divide(gcd));
+        }
     }
 
     public static Rational valueOf(final MathInteger integer) {
-        return valueOf(integer, MathInteger.ONE);
+        return ofReduced(integer, MathInteger.ONE);
     }
 
     public static Rational valueOf(final long num, final long den) {
-        return valueOf(MathInteger.valueOf(num), MathInteger.valueOf(den));
+        return reduce(num, den);
     }
 
     public static Rational valueOf(final long integer) {
-        return valueOf(MathInteger.valueOf(integer));
+        return ofReduced(integer, 1L);
     }
 
     public static Rational valueOf(final Long num, final Long den) {
@@ -80,36 +214,170 @@ public class Rational implements FieldElement<Rational>, Comparable<Rational>, S
         return valueOf(integer.longValue());
     }
 
+    boolean isSmall() {
+        return this.num == null;
+    }
+
+    public MathInteger numerator() {
+        if (this.num == null) {
+            return MathInteger.valueOf(this.n);
+        }
+        return this.num;
+    }
+
+    public MathInteger denominator() {
+        if (this.num == null) {
+            return MathInteger.valueOf(this.d);
+        }
+        return this.den;
+    }
+
+    public boolean isInteger() {
+        if (this.num == null) {
+            return this.d == 1L;
+        }
+        // longに収まらない分母は1ではありえない
+        return false;
+    }
+
+    /**
+     * Knuthの方法による積。交差する分子と分母の組(this.numとother.den、other.numとthis.den)を
+     * 先に約しておけば、既約分数同士の積はそのまま既約になるため、積全体の約分は行わない。
+     */
     @Override
     public Rational multiply(final Rational other) {
-        return valueOf(this.num.multiply(other.num), this.den.multiply(other.den));
+        if (this.isZero() || other.isZero()) {
+            return ZERO;
+        }
+        if (this.num == null && other.num == null && this.n != Long.MIN_VALUE && other.n != Long.MIN_VALUE) {
+            final long g1 = MathInteger.gcd(Math.abs(this.n), other.d);
+            final long g2 = MathInteger.gcd(Math.abs(other.n), this.d);
+            final long n1 = this.n / g1;
+            final long n2 = other.n / g2;
+            final long d1 = this.d / g2;
+            final long d2 = other.d / g1;
+            if (multiplyFits(n1, n2) && multiplyFits(d1, d2)) {
+                return ofReduced(n1 * n2, d1 * d2);
+            }
+            return ofReduced(MathInteger.valueOf(n1).multiply(MathInteger.valueOf(n2)), //
+                    MathInteger.valueOf(d1).multiply(MathInteger.valueOf(d2)));
+        }
+        final MathInteger g1 = this.numerator().abs().gcd(other.denominator());
+        final MathInteger g2 = other.numerator().abs().gcd(this.denominator());
+        return ofReduced(this.numerator().divide(g1).multiply(other.numerator().divide(g2)), //
+                this.denominator().divide(g2).multiply(other.denominator().divide(g1)));
     }
 
+    /**
+     * Henriciの方法による和。分母同士のgcdで先に約してから交差積を取り、
+     * 残りの約分は分子とそのgcdとの間でのみ行うため、途中の値は結果とほぼ同じ大きさに収まる。
+     */
     @Override
     public Rational add(Rational other) {
-        return valueOf( //
-                this.num.multiply(other.den).add(this.den.multiply(other.num)), //
-                this.den.multiply(other.den));
+        if (this.isZero()) {
+            return other;
+        }
+        if (other.isZero()) {
+            return this;
+        }
+        if (this.num == null && other.num == null) {
+            final Rational sum = addSmall(this.n, this.d, other.n, other.d);
+            if (sum != null) {
+                return sum;
+            }
+        }
+        final MathInteger a = this.numerator();
+        final MathInteger b = this.denominator();
+        final MathInteger c = other.numerator();
+        final MathInteger d = other.denominator();
+        final MathInteger g = b.gcd(d);
+        if (g.equals(MathInteger.ONE)) {
+            final MathInteger t = a.multiply(d).add(b.multiply(c));
+            if (t.isZero()) {
+                return ZERO;
+            }
+            return ofReduced(t, b.multiply(d));
+        }
+        final MathInteger bg = b.divide(g);
+        final MathInteger t = a.multiply(d.divide(g)).add(c.multiply(bg));
+        if (t.isZero()) {
+            return ZERO;
+        }
+        final MathInteger g2 = t.abs().gcd(g);
+        return ofReduced(t.divide(g2), bg.multiply(d.divide(g2)));
+    }
+
+    /**
+     * {@link #add(Rational)}のlong版。途中でoverflowする場合はnullを返す。
+     */
+    private static Rational addSmall(final long a, final long b, final long c, final long d) {
+        final long g = MathInteger.gcd(b, d);
+        final long bg = b / g;
+        final long dg = d / g;
+        if (!multiplyFits(a, dg) || !multiplyFits(c, bg)) {
+            return null;
+        }
+        final long ad = a * dg;
+        final long cb = c * bg;
+        final long t = ad + cb;
+        if (((ad ^ t) & (cb ^ t)) < 0) {
+            return null;
+        }
+        if (t == 0L) {
+            return ZERO;
+        }
+        if (g == 1L) {
+            if (!multiplyFits(b, d)) {
+                return null;
+            }
+            return ofReduced(t, b * d);
+        }
+        if (t == Long.MIN_VALUE) {
+            return null;
+        }
+        final long g2 = MathInteger.gcd(Math.abs(t), g);
+        final long dg2 = d / g2;
+        if (!multiplyFits(bg, dg2)) {
+            return null;
+        }
+        return ofReduced(t / g2, bg * dg2);
     }
 
     @Override
     public Rational negate() {
-        return valueOf(this.num.negate(), this.den);
+        // 符号を反転しても既約性は変わらないので約分は不要
+        if (this.num == null) {
+            if (this.n != Long.MIN_VALUE) {
+                return ofReduced(-this.n, this.d);
+            }
+            return ofReduced(MathInteger.valueOf(this.n).negate(), MathInteger.valueOf(this.d));
+        }
+        return ofReduced(this.num.negate(), this.den);
     }
 
     @Override
     public Rational subtract(Rational other) {
-        return valueOf( //
-                this.num.multiply(other.den).subtract(this.den.multiply(other.num)), //
-                this.den.multiply(other.den));
+        return this.add(other.negate());
     }
 
     @Override
     public Rational invert() {
-        if (this.num.isZero()) {
+        if (this.isZero()) {
             throw new ArithmeticException("division by zero");
         }
-        return valueOf(this.den, this.num);
+        // 分子・分母を入れ替えても既約性は変わらないので符号の調整のみ行う
+        if (this.num == null && this.n != Long.MIN_VALUE) {
+            if (this.n > 0L) {
+                return ofReduced(this.d, this.n);
+            } else {
+                return ofReduced(-this.d, -this.n);
+            }
+        }
+        if (this.numerator().isPositive()) {
+            return ofReduced(this.denominator(), this.numerator());
+        } else {
+            return ofReduced(this.denominator().negate(), this.numerator().negate());
+        }
     }
 
     @Override
@@ -117,9 +385,111 @@ public class Rational implements FieldElement<Rational>, Comparable<Rational>, S
         if (other.isZero()) {
             throw new ArithmeticException("division by zero");
         }
-        return valueOf( //
-                this.num.multiply(other.den), //
-                this.den.multiply(other.num));
+        return this.multiply(other.invert());
+    }
+
+    @Override
+    public Accumulator<Rational> accumulator() {
+        final RationalAccumulator accumulator = new RationalAccumulator();
+        accumulator.add(this);
+        return accumulator;
+    }
+
+    /**
+     * 分子を{@link MathInteger.IntegerAccumulator}に累積し、約分を{@link #result()}の1回にまとめる{@link Accumulator}。
+     * 分母が累積中の分母と同じ項(整数係数など)は分子への積和だけで済む。
+     */
+    private static final class RationalAccumulator implements Accumulator<Rational> {
+
+        private final MathInteger.IntegerAccumulator numerator = new MathInteger.IntegerAccumulator();
+        /** 累積中の分母。約分はしていない */
+        private MathInteger denominator = MathInteger.ONE;
+        /** denominatorがlongに収まる場合のその値、収まらない場合は0 */
+        private long smallDenominator = 1L;
+
+        @Override
+        public void add(final Rational value) {
+            if (value.isZero()) {
+                return;
+            }
+            if (value.num == null && this.smallDenominator != 0L && this.smallDenominator % value.d == 0) {
+                final long scale = this.smallDenominator / value.d;
+                if (multiplyFits(value.n, scale)) {
+                    this.numerator.addProduct(value.n, scale);
+                    return;
+                }
+            }
+            this.addFraction(value.numerator(), value.denominator(), null);
+        }
+
+        @Override
+        public void addProduct(final Rational a, final Rational b) {
+            if (a.isZero() || b.isZero()) {
+                return;
+            }
+            if (a.num == null && b.num == null && multiplyFits(a.d, b.d)) {
+                final long d = a.d * b.d;
+                // 分母が累積中の分母を割り切れば、分子をそろえるだけでよい
+                if (d == this.smallDenominator) {
+                    this.numerator.addProduct(a.n, b.n);
+                    return;
+                }
+                if (this.smallDenominator != 0L && this.smallDenominator % d == 0) {
+                    final long scale = this.smallDenominator / d;
+                    if (multiplyFits(a.n, b.n) && multiplyFits(a.n * b.n, scale)) {
+                        this.numerator.addProduct(a.n * b.n, scale);
+                        return;
+                    }
+                }
+            }
+            this.addFraction(a.numerator(), a.denominator().multiply(b.denominator()), b.numerator());
+        }
+
+        /**
+         * 累積値に{@code num * factor / den}を加える。factorがnullなら1とみなす。
+         */
+        private void addFraction(final MathInteger num, final MathInteger den, final MathInteger factor) {
+            if (den.equals(this.denominator)) {
+                if (factor == null) {
+                    this.numerator.add(num);
+                } else {
+                    this.numerator.addProduct(num, factor);
+                }
+                return;
+            }
+            // 分母を最小公倍数にそろえる
+            final MathInteger g = this.denominator.gcd(den);
+            final MathInteger scale = this.denominator.divide(g);
+            this.numerator.multiply(den.divide(g));
+            this.numerator.addProduct(factor == null ? num : num.multiply(factor), scale);
+            this.denominator = scale.multiply(den);
+            this.smallDenominator = this.denominator.isSmall() ? this.denominator.smallValue() : 0L;
+        }
+
+        @Override
+        public Rational result() {
+            return valueOf(this.numerator.result(), this.denominator);
+        }
+
+    }
+
+    /**
+     * 冪。既約分数の分子・分母をそれぞれ冪乗したものは既約なので約分は行わない。
+     *
+     * @throws ArithmeticException
+     *             0の負の冪の場合
+     */
+    public Rational pow(final int exponent) {
+        if (exponent < 0) {
+            final Rational inverse = this.invert();
+            // -Integer.MIN_VALUEはintに収まらないので1つ分けて掛ける
+            return inverse.pow(-(exponent + 1)).multiply(inverse);
+        }
+        return ofReduced(this.numerator().pow(exponent), this.denominator().pow(exponent));
+    }
+
+    private static boolean multiplyFits(final long x, final long y) {
+        return Math.multiplyHigh(x, y) == ((x * y) >> (Long.SIZE - 1));
     }
 
     @Override
@@ -134,16 +504,25 @@ public class Rational implements FieldElement<Rational>, Comparable<Rational>, S
             return false;
         }
         Rational other = (Rational) o;
+        if (this.num == null || other.num == null) {
+            return this.num == other.num && this.n == other.n && this.d == other.d;
+        }
         return this.num.equals(other.num) && this.den.equals(other.den);
     }
 
     @Override
     public int hashCode() {
-        return this.num.hashCode() ^ Integer.rotateLeft(this.den.hashCode(), 16);
+        return this.numerator().hashCode() ^ Integer.rotateLeft(this.denominator().hashCode(), 16);
     }
 
     @Override
     public String toString() {
+        if (this.num == null) {
+            if (this.d == 1L) {
+                return Long.toString(this.n);
+            }
+            return this.n + "/" + this.d;
+        }
         StringBuilder builder = new StringBuilder(this.num.toString());
         if (!this.den.equals(MathInteger.ONE)) {
             builder.append("/");
@@ -154,25 +533,113 @@ public class Rational implements FieldElement<Rational>, Comparable<Rational>, S
 
     @Override
     public boolean isZero() {
-        return this.equals(ZERO);
+        // 0と1のインスタンスは常にキャッシュされたものが使われる
+        return this == ZERO;
     }
 
     @Override
     public boolean isOne() {
-        return this.equals(ONE);
+        return this == ONE;
+    }
+
+    public int signum() {
+        if (this.num == null) {
+            return Long.signum(this.n);
+        }
+        return this.num.signum();
     }
 
     public boolean isPositive() {
-        return this.compareTo(ZERO) > 0;
+        return this.signum() > 0;
     }
 
     public boolean isNegative() {
-        return this.compareTo(ZERO) < 0;
+        return this.signum() < 0;
     }
 
+    /**
+     * 符号、分母の一致、(分子・分母がlongに収まる場合は)128bitの交差積、
+     * (収まらない場合は)桁数と{@code double}による近似の順に判定し、
+     * 決まらない場合のみ{@link MathInteger}での交差積による厳密な比較を行う。
+     */
     @Override
     public int compareTo(Rational other) {
-        return this.num.multiply(other.den).compareTo(this.den.multiply(other.num));
+        if (this == other) {
+            return 0;
+        }
+        final int signum = this.signum();
+        final int otherSignum = other.signum();
+        if (signum != otherSignum) {
+            return signum < otherSignum ? -1 : 1;
+        }
+        if (signum == 0) {
+            return 0;
+        }
+        if (this.num == null && other.num == null) {
+            if (this.d == other.d) {
+                return Long.compare(this.n, other.n);
+            }
+            return compareProducts(this.n, other.d, this.d, other.n);
+        }
+        if (this.denominator().equals(other.denominator())) {
+            return this.numerator().compareTo(other.numerator());
+        }
+        final int magnitude = compareMagnitude(this, other);
+        if (magnitude != 0) {
+            return signum * magnitude;
+        }
+        return this.numerator().multiply(other.denominator())
+                .compareTo(this.denominator().multiply(other.numerator()));
+    }
+
+    /**
+     * {@code a * b}と{@code c * d}を128bitの積として比較する。
+     */
+    private static int compareProducts(final long a, final long b, final long c, final long d) {
+        final long hi1 = Math.multiplyHigh(a, b);
+        final long hi2 = Math.multiplyHigh(c, d);
+        if (hi1 != hi2) {
+            return hi1 < hi2 ? -1 : 1;
+        }
+        return Long.compareUnsigned(a * b, c * d);
+    }
+
+    private static final double APPROXIMATION_TOLERANCE = 0x1.0p-40;
+
+    /**
+     * 絶対値を近似的に比較する。近似の誤差の範囲内で大小が決まらない場合は0を返す。
+     */
+    private static int compareMagnitude(final Rational x, final Rational y) {
+        final BigInteger a = x.numerator().bigIntegerValue().abs();
+        final BigInteger b = x.denominator().bigIntegerValue();
+        final BigInteger c = y.numerator().bigIntegerValue().abs();
+        final BigInteger d = y.denominator().bigIntegerValue();
+
+        // |a/b|は2^(bitLength(a) - bitLength(b) - 1)より大きく2^(bitLength(a) - bitLength(b) + 1)より小さい
+        final long xExponent = (long) a.bitLength() - b.bitLength();
+        final long yExponent = (long) c.bitLength() - d.bitLength();
+        if (xExponent - yExponent >= 2) {
+            return 1;
+        }
+        if (yExponent - xExponent >= 2) {
+            return -1;
+        }
+
+        // 各整数を上位63bitまで切り詰めてdoubleに変換し、切り詰めた分は指数として戻す
+        final int aShift = Math.max(0, a.bitLength() - 63);
+        final int bShift = Math.max(0, b.bitLength() - 63);
+        final int cShift = Math.max(0, c.bitLength() - 63);
+        final int dShift = Math.max(0, d.bitLength() - 63);
+        final double xMantissa = a.shiftRight(aShift).doubleValue() / b.shiftRight(bShift).doubleValue();
+        final double yMantissa = c.shiftRight(cShift).doubleValue() / d.shiftRight(dShift).doubleValue();
+        final double ratio = Math.scalb(xMantissa / yMantissa, (aShift - bShift) - (cShift - dShift));
+        if (ratio > 1.0 + APPROXIMATION_TOLERANCE) {
+            return 1;
+        }
+        if (ratio < 1.0 - APPROXIMATION_TOLERANCE) {
+            return -1;
+        }
+        return 0;
     }
 
 }
@@ -0,0 +1,283 @@
+package number.number;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import number.algebra.AlgebraicException;
+import number.algebra.Matrices;
+import number.algebra.VectorSpace;
+
+/**
+ * 有理数係数の行列に対する演算。
+ *
+ * 連立一次方程式はDixonのp進持ち上げで解く。係数を整数にそろえてから1つの31bitの素数pを法として逆行列を一度だけ求め、
+ * 残差の更新を整数演算で繰り返して解のp進展開を求め、各成分を有理数復元で取り出す。
+ * {@link Rational}のまま消去法を行う{@link Matrices.Matrix#solve}と違い、途中の係数の膨張が起きない。
+ */
+public final class RationalMatrices {
+
+    /** 逆行列を持つ法を探すときに試す素数の個数。いずれでも特異なら行列自体が特異とみなす */
+    private static final int PRIME_TRIALS = 4;
+
+    private RationalMatrices() {
+    }
+
+    /**
+     * {@code matrix * x = b}を満たすxを1つ返す。
+     *
+     * 正則な正方行列の場合はDixonのp進持ち上げで解く。それ以外の場合は{@link Matrices.Matrix#solve}と同じく
+     * 自由変数を0とした解を返す。
+     *
+     * @throws AlgebraicException
+     *             解が存在しない場合
+     */
+    public static VectorSpace<Rational>.Vector solve(final Matrices<Rational>.Matrix matrix,
+            final VectorSpace<Rational>.Vector b) {
+        final int n = matrix.rowSize();
+        if (b.dim() != n) {
+            throw new IllegalArgumentException("vector has unmatch dimension: " + b.dim() + ", need: " + n);
+        }
+        if (n == 0 || n != matrix.columnSize()) {
+            return matrix.solve(b);
+        }
+
+        // 各行に分母の最小公倍数を掛けて整数係数にする
+        final BigInteger[] a = new BigInteger[n * n];
+        final BigInteger[] rhs = new BigInteger[n];
+        for (int i = 0; i < n; i++) {
+            BigInteger lcm = b.get(i).denominator().bigIntegerValue();
+            for (int j = 0; j < n; j++) {
+                lcm = lcm(lcm, matrix.get(i, j).denominator().bigIntegerValue());
+            }
+            for (int j = 0; j < n; j++) {
+                a[i * n + j] = scale(matrix.get(i, j), lcm);
+            }
+            rhs[i] = scale(b.get(i), lcm);
+        }
+
+        final Lifting lifting = Lifting.of(a, n);
+        if (lifting == null) {
+            return matrix.solve(b);
+        }
+
+        // Hadamardの不等式により、Cramerの公式の分子も分母も絶対値が 2^bits 以下
+        long bits = 0;
+        for (int i = 0; i < n; i++) {
+            BigInteger squareSum = rhs[i].multiply(rhs[i]);
+            for (int j = 0; j < n; j++) {
+                squareSum = squareSum.add(a[i * n + j].multiply(a[i * n + j]));
+            }
+            bits += (squareSum.bitLength() + 1) / 2;
+        }
+        // 有理数復元には p^k > 2 * 2^bits * 2^bits が必要で、各素数は2^30より大きい
+        final int steps = (int) ((2 * bits + 1) / 30 + 1);
+
+        // 解が小さい場合に早く終えられるよう、持ち上げの回数が2の冪になるごとにも復元を試みる
+        int checkpoint = 1;
+        while (true) {
+            final int target = Math.min(checkpoint, steps);
+            lifting.liftTo(target, rhs);
+            final Rational[] x = lifting.reconstruct();
+            if (x != null && satisfies(a, rhs, n, x)) {
+                return VectorSpace.of(Rational.class, n).getWith(x);
+            }
+            if (target == steps) {
+                break;
+            }
+            checkpoint *= 2;
+        }
+        // 上界が正しければここには来ない
+        return matrix.solve(b);
+    }
+
+    private static BigInteger lcm(final BigInteger a, final BigInteger b) {
+        if (a.equals(b) || b.equals(BigInteger.ONE)) {
+            return a;
+        }
+        return a.divide(a.gcd(b)).multiply(b);
+    }
+
+    /**
+     * 分母の倍数{@code lcm}を掛けた整数値。
+     */
+    private static BigInteger scale(final Rational value, final BigInteger lcm) {
+        return value.numerator().bigIntegerValue().multiply(lcm.divide(value.denominator().bigIntegerValue()));
+    }
+
+    /**
+     * 整数係数の方程式 a * x = rhs を有理数の解xが満たすか。
+     */
+    private static boolean satisfies(final BigInteger[] a, final BigInteger[] rhs, final int n, final Rational[] x) {
+        // 共通の分母dでそろえた分子 d * x_j で確かめる
+        BigInteger d = BigInteger.ONE;
+        for (final Rational value : x) {
+            d = lcm(d, value.denominator().bigIntegerValue());
+        }
+        final BigInteger[] scaled = new BigInteger[n];
+        for (int j = 0; j < n; j++) {
+            scaled[j] = scale(x[j], d);
+        }
+        for (int i = 0; i < n; i++) {
+            BigInteger sum = BigInteger.ZERO;
+            for (int j = 0; j < n; j++) {
+                sum = sum.add(a[i * n + j].multiply(scaled[j]));
+            }
+            if (!sum.equals(rhs[i].multiply(d))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 1つの素数pを法とする逆行列を用いたp進持ち上げの途中状態。
+     */
+    private static final class Lifting {
+
+        private final BigInteger[] a;
+        private final int n;
+        private final PrimeField field;
+        private final ModPrimeMatrix inverse;
+        private final BigInteger p;
+
+        /** 残差 (rhs - a * x) / p^k */
+        private BigInteger[] residual;
+        /** 解のp進展開の下位k桁 x mod p^k */
+        private BigInteger[] solution;
+        /** p^k */
+        private BigInteger power = BigInteger.ONE;
+        private int steps;
+
+        private Lifting(final BigInteger[] a, final int n, final PrimeField field, final ModPrimeMatrix inverse) {
+            this.a = a;
+            this.n = n;
+            this.field = field;
+            this.inverse = inverse;
+            this.p = BigInteger.valueOf(field.modulus());
+        }
+
+        /**
+         * aが可逆となる素数を探す。見つからなければnull。
+         */
+        static Lifting of(final BigInteger[] a, final int n) {
+            final MathInteger[][] coeffs = new MathInteger[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    coeffs[i][j] = MathInteger.valueOf(a[i * n + j]);
+                }
+            }
+            final Matrices<MathInteger>.Matrix integers = Matrices.of(MathInteger.class, n, n).getWith(coeffs);
+            for (final long prime : Modular.primes(PRIME_TRIALS)) {
+                final PrimeField field = PrimeField.of(prime);
+                final ModPrimeMatrix reduced = ModPrimeMatrix.reduce(field, integers);
+                if (reduced.determinant() != 0) {
+                    return new Lifting(a, n, field, reduced.inverse());
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 持ち上げを{@code target}桁まで進める。
+         */
+        void liftTo(final int target, final BigInteger[] rhs) {
+            final int n = this.n;
+            if (this.residual == null) {
+                this.residual = rhs.clone();
+                this.solution = new BigInteger[n];
+                Arrays.fill(this.solution, BigInteger.ZERO);
+            }
+            final long[] digits = new long[n];
+            final long[] reduced = new long[n];
+            while (this.steps < target) {
+                // y = A^-1 * residual (mod p)
+                for (int j = 0; j < n; j++) {
+                    reduced[j] = this.residual[j].mod(this.p).longValue();
+                }
+                for (int i = 0; i < n; i++) {
+                    long sum = 0;
+                    for (int j = 0; j < n; j++) {
+                        sum = this.field.add(sum, this.field.multiply(this.inverse.get(i, j), reduced[j]));
+                    }
+                    digits[i] = sum;
+                }
+                // residual = (residual - A * y) / p は割り切れる
+                for (int i = 0; i < n; i++) {
+                    BigInteger sum = this.residual[i];
+                    for (int j = 0; j < n; j++) {
+                        if (digits[j] != 0) {
+                            sum = sum.subtract(this.a[i * n + j].multiply(BigInteger.valueOf(digits[j])));
+                        }
+                    }
+                    this.residual[i] = sum.divide(this.p);
+                }
+                for (int j = 0; j < n; j++) {
+                    if (digits[j] != 0) {
+                        this.solution[j] = this.solution[j].add(this.power.multiply(BigInteger.valueOf(digits[j])));
+                    }
+                }
+                this.power = this.power.multiply(this.p);
+                this.steps++;
+            }
+        }
+
+        /**
+         * 現在の x mod p^k から、分子と分母の絶対値がいずれも sqrt(p^k / 2) 以下の有理数を復元する。
+         * 復元できない成分があればnull。
+         */
+        Rational[] reconstruct() {
+            final BigInteger bound = this.power.shiftRight(1).sqrt();
+            final Rational[] x = new Rational[this.n];
+            // それまでの成分の分母の積を先に掛けておくと、多くの場合に復元が自明になる
+            BigInteger common = BigInteger.ONE;
+            for (int j = 0; j < this.n; j++) {
+                BigInteger scaled = this.solution[j].multiply(common).mod(this.power);
+                if (scaled.compareTo(this.power.shiftRight(1)) > 0) {
+                    scaled = scaled.subtract(this.power);
+                }
+                final Rational value;
+                if (scaled.abs().compareTo(bound) <= 0) {
+                    value = Rational.valueOf(MathInteger.valueOf(scaled), MathInteger.valueOf(common));
+                } else {
+                    final BigInteger[] fraction = reconstruct(scaled.mod(this.power), this.power, bound);
+                    if (fraction == null) {
+                        return null;
+                    }
+                    value = Rational.valueOf(MathInteger.valueOf(fraction[0]),
+                            MathInteger.valueOf(fraction[1].multiply(common)));
+                    common = common.multiply(fraction[1]);
+                }
+                x[j] = value;
+            }
+            return x;
+        }
+
+        /**
+         * 拡張Euclidの互除法による有理数復元。{@code u = r / t (mod m)}, {@code |r| <= bound}, {@code 0 < t <= bound}
+         * を満たす{@code {r, t}}を返す。
+         */
+        private static BigInteger[] reconstruct(final BigInteger u, final BigInteger m, final BigInteger bound) {
+            BigInteger r0 = m;
+            BigInteger r1 = u;
+            BigInteger t0 = BigInteger.ZERO;
+            BigInteger t1 = BigInteger.ONE;
+            while (r1.compareTo(bound) > 0) {
+                final BigInteger[] qr = r0.divideAndRemainder(r1);
+                r0 = r1;
+                r1 = qr[1];
+                final BigInteger t2 = t0.subtract(qr[0].multiply(t1));
+                t0 = t1;
+                t1 = t2;
+            }
+            if (t1.signum() == 0 || t1.abs().compareTo(bound) > 0 || !r1.gcd(t1).equals(BigInteger.ONE)) {
+                return null;
+            }
+            if (t1.signum() < 0) {
+                return new BigInteger[] { r1.negate(), t1.negate() };
+            }
+            return new BigInteger[] { r1, t1 };
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+package use;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import number.algebra.Accumulator;
+import number.number.MathInteger;
+import number.number.Rational;
+
+/**
+ * {@link MathInteger#accumulator()}と{@link Rational#accumulator()}の動作確認。
+ * 128bitの累積値が溢れる積和や、分母が累積中の分母を割り切らない項を混ぜて加え、
+ * {@link BigInteger}で求めた和との一致を確かめる。失敗した場合は例外を投げる。
+ */
+public class CheckAccumulators {
+
+    public static void main(String[] args) {
+
+        final Random random = new Random(16);
+
+        // 整数: 2^126程度の積を続けて加えると上位64bitが溢れ、BigIntegerに退避される
+        final BigInteger[] integers = { BigInteger.valueOf(Long.MAX_VALUE), BigInteger.valueOf(Long.MIN_VALUE),
+            BigInteger.valueOf(Long.MIN_VALUE + 1), BigInteger.ONE.shiftLeft(62), BigInteger.valueOf(-3037000500L),
+            BigInteger.valueOf(7), BigInteger.valueOf(-1), BigInteger.ZERO, BigInteger.ONE.shiftLeft(70).negate(),
+            BigInteger.ONE.shiftLeft(64).add(BigInteger.ONE) };
+        for (int trial = 0; trial < 200; trial++) {
+            final BigInteger initial = integers[random.nextInt(integers.length)];
+            final Accumulator<MathInteger> accumulator = MathInteger.valueOf(initial).accumulator();
+            BigInteger expected = initial;
+            for (int step = 0; step < 50; step++) {
+                final BigInteger a = integers[random.nextInt(integers.length)];
+                if (random.nextInt(3) == 0) {
+                    accumulator.add(MathInteger.valueOf(a));
+                    expected = expected.add(a);
+                } else {
+                    // 同じ符号の大きい積を続けやすいよう、bは半分の確率でaと同じ値にする
+                    final BigInteger b = random.nextBoolean() ? a : integers[random.nextInt(integers.length)];
+                    accumulator.addProduct(MathInteger.valueOf(a), MathInteger.valueOf(b));
+                    expected = expected.add(a.multiply(b));
+                }
+                // 途中で結果を取り出しても累積を続けられる
+                check(accumulator.result().equals(MathInteger.valueOf(expected)),
+                        "integer sum " + accumulator.result() + ", expected: " + expected);
+            }
+        }
+
+        // 有理数: 分母がlongの境界付近の項、互いに素な分母の項、整数の項を混ぜる
+        final Rational[] rationals = { Rational.valueOf(1, 3), Rational.valueOf(-5, 7), Rational.valueOf(2),
+            Rational.valueOf(Long.MAX_VALUE, 2), Rational.valueOf(1, Long.MAX_VALUE),
+            Rational.valueOf(Long.MIN_VALUE, 3), Rational.valueOf(3, (1L << 32) + 1),
+            Rational.valueOf(-1, 1L << 62), Rational.valueOf(Long.MIN_VALUE + 1, 1L << 62),
+            Rational.valueOf(MathInteger.valueOf(BigInteger.ONE.shiftLeft(70)), MathInteger.valueOf(9)),
+            Rational.valueOf(MathInteger.valueOf(5), MathInteger.valueOf(BigInteger.ONE.shiftLeft(66).add(
+                    BigInteger.ONE))) };
+        for (int trial = 0; trial < 200; trial++) {
+            final Rational initial = rationals[random.nextInt(rationals.length)];
+            final Accumulator<Rational> accumulator = initial.accumulator();
+            BigInteger num = initial.numerator().bigIntegerValue();
+            BigInteger den = initial.denominator().bigIntegerValue();
+            for (int step = 0; step < 20; step++) {
+                final Rational a = rationals[random.nextInt(rationals.length)];
+                final BigInteger termNum;
+                final BigInteger termDen;
+                if (random.nextInt(3) == 0) {
+                    accumulator.add(a);
+                    termNum = a.numerator().bigIntegerValue();
+                    termDen = a.denominator().bigIntegerValue();
+                } else {
+                    final Rational b = rationals[random.nextInt(rationals.length)];
+                    accumulator.addProduct(a, b);
+                    termNum = a.numerator().bigIntegerValue().multiply(b.numerator().bigIntegerValue());
+                    termDen = a.denominator().bigIntegerValue().multiply(b.denominator().bigIntegerValue());
+                }
+                num = num.multiply(termDen).add(termNum.multiply(den));
+                den = den.multiply(termDen);
+                final BigInteger gcd = num.gcd(den);
+                num = num.divide(gcd);
+                den = den.divide(gcd);
+                final Rational expected = Rational.valueOf(MathInteger.valueOf(num), MathInteger.valueOf(den));
+                check(accumulator.result().equals(expected),
+                        "rational sum " + accumulator.result() + ", expected: " + expected);
+            }
+        }
+
+        System.out.println("Accumulators: ok");
+
+    }
+
+    private static void check(final boolean condition, final String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+}
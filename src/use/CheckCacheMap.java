@@ -0,0 +1,59 @@
+package use;
+
+import utils.CacheMap;
+
+/**
+ * {@link CacheMap}の件数上限と取り除く順序の動作確認。失敗した場合は例外を投げる。
+ */
+public class CheckCacheMap {
+
+    public static void main(String[] args) {
+
+        // 同じキーへの再登録は件数に数えない
+        final CacheMap<String, Integer> map = new CacheMap<>(3);
+        map.put("A", 1);
+        map.put("B", 2);
+        map.put("A", 3);
+        map.put("A", 4);
+        map.put("C", 5);
+        check(map.size() == 3, "size after re-put: " + map.size());
+        check(map.get("A") == 4 && map.get("B") == 2 && map.get("C") == 5, "entries after re-put");
+        check(map.evictionCount() == 0, "eviction after re-put: " + map.evictionCount());
+
+        // 上限を超えると、すべて参照済みなら登録の古いエントリから取り除く
+        map.put("D", 6);
+        check(map.size() == 3, "size after overflow: " + map.size());
+        check(map.get("B") == null && map.get("D") == 6, "eldest entry is evicted");
+        check(map.evictionCount() == 1, "eviction after overflow: " + map.evictionCount());
+
+        // 置き換えを繰り返しても上限までは保持し続ける
+        final CacheMap<Integer, Integer> churn = new CacheMap<>(4);
+        for (int i = 0; i < 10000; i++) {
+            churn.put(i % 4, i);
+        }
+        check(churn.size() == 4, "size after churn: " + churn.size());
+        check(churn.evictionCount() == 0, "eviction after churn: " + churn.evictionCount());
+
+        // 頻繁に参照するエントリは、1回しか使わないエントリを大量に登録しても残る
+        final CacheMap<Integer, Integer> scan = new CacheMap<>(100);
+        scan.put(-1, -1);
+        for (int i = 0; i < 10000; i++) {
+            scan.put(i, i);
+            if (i % 50 == 0) {
+                check(scan.get(-1) != null, "frequently used entry is evicted at " + i);
+            }
+        }
+        check(scan.size() == 100, "size after scan: " + scan.size());
+        check(scan.get(0) == null && scan.get(9999) == 9999, "one-off entries after scan");
+
+        System.out.println("CacheMap: ok");
+
+    }
+
+    private static void check(final boolean condition, final String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+}
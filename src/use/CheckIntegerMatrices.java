@@ -0,0 +1,92 @@
+package use;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import number.algebra.Matrices;
+import number.number.IntegerMatrices;
+import number.number.MathInteger;
+
+/**
+ * {@link IntegerMatrices}の多剰余演算の動作確認。値の分かっている行列式と、
+ * {@link MathInteger}のまま計算した結果との一致を確かめる。失敗した場合は例外を投げる。
+ */
+public class CheckIntegerMatrices {
+
+    public static void main(String[] args) {
+
+        // Vandermonde行列 (x_i^j), x_i = i + 1 の行列式は Π_{i<j} (x_j - x_i)
+        for (int n = 1; n <= 12; n++) {
+            final MathInteger[][] vandermonde = new MathInteger[n][n];
+            BigInteger expected = BigInteger.ONE;
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    vandermonde[i][j] = MathInteger.valueOf(BigInteger.valueOf(i + 1).pow(j));
+                }
+                for (int k = 0; k < i; k++) {
+                    expected = expected.multiply(BigInteger.valueOf(i - k));
+                }
+            }
+            final MathInteger det = IntegerMatrices.determinant(Matrices.createMatrixWith(vandermonde));
+            check(det.bigIntegerValue().equals(expected), "Vandermonde " + n + ": " + det + " != " + expected);
+        }
+
+        // 1つの素数に収まらない大きさの行列式と、負の行列式
+        final BigInteger big = BigInteger.ONE.shiftLeft(62);
+        final MathInteger[][] large = { { MathInteger.valueOf(big), MathInteger.valueOf(3) },
+                { MathInteger.valueOf(5), MathInteger.valueOf(big.add(BigInteger.ONE)) } };
+        check(IntegerMatrices.determinant(Matrices.createMatrixWith(large)).bigIntegerValue()
+                .equals(big.multiply(big.add(BigInteger.ONE)).subtract(BigInteger.valueOf(15))), "large determinant");
+        final MathInteger[][] negative = { { MathInteger.valueOf(1), MathInteger.valueOf(big) },
+                { MathInteger.valueOf(big), MathInteger.valueOf(1) } };
+        check(IntegerMatrices.determinant(Matrices.createMatrixWith(negative)).bigIntegerValue()
+                .equals(BigInteger.ONE.subtract(big.multiply(big))), "negative determinant");
+
+        // 0でない行を持つ特異な行列
+        final MathInteger[][] singular = { row(1, 2, 3), row(4, 5, 6), row(7, 8, 9) };
+        check(IntegerMatrices.determinant(Matrices.createMatrixWith(singular)).isZero(), "singular determinant");
+
+        // 乱数の行列でBareissの消去法・通常の積と一致する
+        final Random random = new Random(13);
+        for (int trial = 0; trial < 20; trial++) {
+            final int n = 1 + random.nextInt(8);
+            final Matrices<MathInteger>.Matrix a = randomMatrix(random, n, n, 100);
+            check(IntegerMatrices.determinant(a).equals(a.determinant()), "determinant of " + a);
+            final Matrices<MathInteger>.Matrix b = randomMatrix(random, n, 1 + random.nextInt(8), 100);
+            check(IntegerMatrices.multiply(a, b).equals(a.multiply(b)), "product of " + a + " and " + b);
+        }
+
+        System.out.println("IntegerMatrices: ok");
+
+    }
+
+    private static MathInteger[] row(final long... values) {
+        final MathInteger[] row = new MathInteger[values.length];
+        for (int j = 0; j < values.length; j++) {
+            row[j] = MathInteger.valueOf(values[j]);
+        }
+        return row;
+    }
+
+    /**
+     * 絶対値が2^bits程度までの符号付きの成分を持つ行列。
+     */
+    private static Matrices<MathInteger>.Matrix randomMatrix(final Random random, final int rows, final int columns,
+            final int bits) {
+        final MathInteger[][] coeffs = new MathInteger[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                final BigInteger value = new BigInteger(1 + random.nextInt(bits), random);
+                coeffs[i][j] = MathInteger.valueOf(random.nextBoolean() ? value : value.negate());
+            }
+        }
+        return Matrices.createMatrixWith(coeffs);
+    }
+
+    private static void check(final boolean condition, final String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+}
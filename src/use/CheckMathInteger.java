@@ -0,0 +1,116 @@
+package use;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import number.number.MathInteger;
+
+/**
+ * {@link MathInteger}のlongとBigIntegerを使い分ける演算の動作確認。longの境界付近の値について、
+ * {@link BigInteger}で計算した値との一致と、結果の表現が{@link MathInteger#valueOf(BigInteger)}で得たものと
+ * 同じであることを確かめる。失敗した場合は例外を投げる。
+ */
+public class CheckMathInteger {
+
+    public static void main(String[] args) {
+
+        // 小さい値は共有インスタンスになる
+        check(MathInteger.valueOf(BigInteger.valueOf(5)) == MathInteger.valueOf(5), "shared instance of 5");
+        check(MathInteger.valueOf(2).add(MathInteger.valueOf(3)) == MathInteger.valueOf(5), "shared sum");
+        check(MathInteger.valueOf(BigInteger.ONE.shiftLeft(70)).subtract(MathInteger.valueOf(BigInteger.ONE
+                .shiftLeft(70))).isZero(), "difference of large values is zero");
+
+        final List<BigInteger> values = boundaryValues();
+        final Random random = new Random(1);
+        for (int trial = 0; trial < 200; trial++) {
+            final BigInteger edge = values.get(random.nextInt(values.size()));
+            values.add(edge.add(BigInteger.valueOf(random.nextInt(2001) - 1000)));
+        }
+
+        for (final BigInteger x : values) {
+            final MathInteger a = MathInteger.valueOf(x);
+            check(a.bigIntegerValue().equals(x), "value of " + x);
+            checkEquals(a.negate(), x.negate(), "-" + x);
+            checkEquals(a.abs(), x.abs(), "|" + x + "|");
+            check(a.signum() == x.signum(), "signum of " + x);
+            for (final BigInteger y : values) {
+                final MathInteger b = MathInteger.valueOf(y);
+                checkEquals(a.add(b), x.add(y), x + " + " + y);
+                checkEquals(a.subtract(b), x.subtract(y), x + " - " + y);
+                checkEquals(a.multiply(b), x.multiply(y), x + " * " + y);
+                checkEquals(a.gcd(b), x.gcd(y), "gcd(" + x + ", " + y + ")");
+                check(Integer.signum(a.compareTo(b)) == x.compareTo(y), x + " <=> " + y);
+                check(a.equals(b) == x.equals(y), x + " == " + y);
+                if (y.signum() != 0) {
+                    checkEquals(a.divide(b), x.divide(y), x + " / " + y);
+                }
+            }
+        }
+
+        // 冪は途中でlongに収まらなくなる場合も含めて一致する
+        for (final BigInteger x : values) {
+            if (x.bitLength() > 40) {
+                continue;
+            }
+            final MathInteger a = MathInteger.valueOf(x);
+            for (int e = 0; e <= 70; e++) {
+                checkEquals(a.pow(e), x.pow(e), x + "^" + e);
+            }
+        }
+        checkEquals(MathInteger.valueOf(Long.MIN_VALUE).pow(1), BigInteger.valueOf(Long.MIN_VALUE), "MIN^1");
+        checkEquals(MathInteger.valueOf(-2).pow(63), BigInteger.valueOf(Long.MIN_VALUE), "(-2)^63");
+        checkEquals(MathInteger.valueOf(2).pow(63), BigInteger.ONE.shiftLeft(63), "2^63");
+
+        checkThrows(() -> MathInteger.valueOf(2).pow(-1), "negative exponent");
+        checkThrows(() -> MathInteger.valueOf(2).divide(MathInteger.valueOf(0)), "division by zero");
+
+        System.out.println("MathInteger: ok");
+
+    }
+
+    /**
+     * 0・±1、2^31・2^32・sqrt(Long.MAX_VALUE)・2^63の前後の値とその符号を反転した値。
+     */
+    private static List<BigInteger> boundaryValues() {
+        final long sqrt = 3037000499L;
+        final long[] edges = { 0, 1, 2, 3, 1L << 31, 1L << 32, sqrt, Long.MAX_VALUE };
+        final List<BigInteger> values = new ArrayList<>();
+        for (final long edge : edges) {
+            for (int offset = -1; offset <= 1; offset++) {
+                final BigInteger value = BigInteger.valueOf(edge).add(BigInteger.valueOf(offset));
+                values.add(value);
+                values.add(value.negate());
+            }
+        }
+        values.add(BigInteger.ONE.shiftLeft(64));
+        values.add(BigInteger.ONE.shiftLeft(64).negate());
+        values.add(BigInteger.ONE.shiftLeft(100).add(BigInteger.ONE));
+        return values;
+    }
+
+    private static void checkEquals(final MathInteger actual, final BigInteger expected, final String message) {
+        // 値が等しく、表現もvalueOfで得たものと同じ(equalsとhashCodeは表現ごとに比較する)
+        final MathInteger canonical = MathInteger.valueOf(expected);
+        check(actual.bigIntegerValue().equals(expected) && actual.equals(canonical)
+                && actual.hashCode() == canonical.hashCode(), message + " = " + actual + ", expected: " + expected);
+        check(actual.isZero() == (expected.signum() == 0), message + " is zero");
+    }
+
+    private static void checkThrows(final Runnable operation, final String message) {
+        try {
+            operation.run();
+            throw new IllegalStateException(message + " does not throw");
+        } catch (final ArithmeticException expected) {
+            // 期待どおり
+        }
+    }
+
+    private static void check(final boolean condition, final String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package use;
+
+import java.util.Random;
+
+import number.algebra.MatrixResultCache;
+import number.algebra.Matrices;
+import number.number.MathInteger;
+
+/**
+ * {@link MatrixResultCache}の動作確認。繰り返し使う積の結果が、1回しか使わない積を大量に計算しても
+ * キャッシュに残ることを確かめる。失敗した場合は例外を投げる。
+ */
+public class CheckMatrixResultCache {
+
+    public static void main(String[] args) {
+
+        final MatrixResultCache before = Matrices.resultCache();
+        final MatrixResultCache cache = new MatrixResultCache(16);
+        Matrices.setResultCache(cache);
+        try {
+            final Random random = new Random(25);
+            final Matrices<MathInteger>.Matrix a = randomMatrix(random);
+            final Matrices<MathInteger>.Matrix b = randomMatrix(random);
+            final Matrices<MathInteger>.Matrix expected = a.multiply(b);
+            check(cache.missCount() == 1 && cache.hitCount() == 0, "first product: " + cache);
+
+            final int rounds = 1000;
+            for (int i = 0; i < rounds; i++) {
+                // 1回しか使わない積
+                randomMatrix(random).multiply(randomMatrix(random));
+                // 同じ内容の別のインスタンスでも結果を引ける
+                check(copyOf(a).multiply(copyOf(b)).equals(expected), "repeated product");
+            }
+            check(cache.hitCount() == rounds, "repeated product is evicted: " + cache);
+            check(cache.missCount() == rounds + 1, "one-off products: " + cache);
+            check(cache.size() == cache.maximumSize(), "size: " + cache);
+        } finally {
+            Matrices.setResultCache(before);
+        }
+
+        System.out.println("MatrixResultCache: ok");
+
+    }
+
+    private static Matrices<MathInteger>.Matrix randomMatrix(final Random random) {
+        final MathInteger[][] coeffs = new MathInteger[4][4];
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                coeffs[i][j] = MathInteger.valueOf(1 + random.nextInt(1000));
+            }
+        }
+        return Matrices.createMatrixWith(coeffs);
+    }
+
+    private static Matrices<MathInteger>.Matrix copyOf(final Matrices<MathInteger>.Matrix matrix) {
+        final MathInteger[][] coeffs = new MathInteger[matrix.rowSize()][matrix.columnSize()];
+        for (int i = 0; i < coeffs.length; i++) {
+            for (int j = 0; j < coeffs[i].length; j++) {
+                coeffs[i][j] = matrix.get(i, j);
+            }
+        }
+        return Matrices.createMatrixWith(coeffs);
+    }
+
+    private static void check(final boolean condition, final String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+}
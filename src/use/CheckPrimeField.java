@@ -0,0 +1,123 @@
+package use;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import number.algebra.AlgebraicException;
+import number.number.ModPrime;
+import number.number.ModPrimeMatrix;
+import number.number.PrimeField;
+
+/**
+ * {@link PrimeField}のBarrettの方法による剰余と、{@link ModPrime}、{@link ModPrimeMatrix}の動作確認。
+ * {@link BigInteger}で計算した値との一致を確かめる。失敗した場合は例外を投げる。
+ */
+public class CheckPrimeField {
+
+    /** 最小の素数、小さい素数、2^16 + 1、2^31未満の最大の素数とその手前の素数 */
+    private static final long[] PRIMES = { 2, 3, 65537, 2147483629L, 2147483647L };
+
+    public static void main(String[] args) {
+
+        final Random random = new Random(14);
+        for (final long p : PRIMES) {
+            final PrimeField field = PrimeField.of(p);
+            final BigInteger modulus = BigInteger.valueOf(p);
+
+            // 積の剰余は境界の値を含めてBigIntegerの剰余と一致する
+            final long[] edges = { 0, 1, p / 2, p - 2, p - 1 };
+            for (final long a : edges) {
+                for (final long b : edges) {
+                    checkProduct(field, modulus, a, b);
+                }
+            }
+            for (int trial = 0; trial < 100000; trial++) {
+                checkProduct(field, modulus, Math.floorMod(random.nextLong(), p), Math.floorMod(random.nextLong(), p));
+            }
+
+            // 逆元
+            for (int trial = 0; trial < 1000; trial++) {
+                final long a = 1 + Math.floorMod(random.nextLong(), p - 1);
+                check(field.multiply(a, field.invert(a)) == 1, "inverse of " + a + " mod " + p);
+            }
+            check(field.reduce(-1) == p - 1, "reduce(-1) mod " + p);
+
+            // ModPrimeは体の元として振る舞う
+            final ModPrime x = field.valueOf(random.nextLong());
+            final ModPrime y = field.valueOf(random.nextLong());
+            check(x.add(y).subtract(y).equals(x), "add/subtract mod " + p);
+            if (!y.isZero()) {
+                check(x.multiply(y).divide(y).equals(x), "multiply/divide mod " + p);
+            }
+            check(field.one().isOne() && field.zero().isZero(), "units mod " + p);
+        }
+
+        final PrimeField field = PrimeField.of(2147483647L);
+
+        // Vandermonde行列の行列式は Π_{i<j} (x_j - x_i) をpで割った剰余
+        final int n = 10;
+        final long[][] vandermonde = new long[n][n];
+        BigInteger expected = BigInteger.ONE;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                vandermonde[i][j] = BigInteger.valueOf(i + 2).pow(j).mod(BigInteger.valueOf(field.modulus()))
+                        .longValue();
+            }
+            for (int k = 0; k < i; k++) {
+                expected = expected.multiply(BigInteger.valueOf(i - k));
+            }
+        }
+        final ModPrimeMatrix v = ModPrimeMatrix.of(field, vandermonde);
+        check(v.determinant() == expected.mod(BigInteger.valueOf(field.modulus())).longValue(),
+                "Vandermonde determinant");
+        check(v.rank() == n, "Vandermonde rank");
+
+        // 逆行列との積は両側から単位行列になる
+        for (int trial = 0; trial < 20; trial++) {
+            final int size = 1 + random.nextInt(12);
+            final long[][] values = new long[size][size];
+            final long[][] identity = new long[size][size];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    values[i][j] = random.nextLong();
+                }
+                identity[i][i] = 1;
+            }
+            final ModPrimeMatrix a = ModPrimeMatrix.of(field, values);
+            if (a.determinant() == 0) {
+                continue;
+            }
+            final ModPrimeMatrix inverse = a.inverse();
+            final ModPrimeMatrix one = ModPrimeMatrix.of(field, identity);
+            check(a.multiply(inverse).equals(one) && inverse.multiply(a).equals(one), "inverse round trip");
+            // Matrices上の演算とも一致する
+            check(a.multiply(a).toMatrix().equals(a.toMatrix().multiply(a.toMatrix())), "product via Matrices");
+        }
+
+        // 特異な行列
+        final ModPrimeMatrix singular = ModPrimeMatrix.of(field,
+                new long[][] { { 1, 2, 3 }, { 4, 5, 6 }, { 7, 8, 9 } });
+        check(singular.determinant() == 0 && singular.rank() == 2, "singular determinant and rank");
+        try {
+            singular.inverse();
+            throw new IllegalStateException("inverse of singular matrix");
+        } catch (final AlgebraicException expectedException) {
+            // 特異な行列の逆行列は求められない
+        }
+
+        System.out.println("PrimeField: ok");
+
+    }
+
+    private static void checkProduct(final PrimeField field, final BigInteger modulus, final long a, final long b) {
+        final long expected = BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).mod(modulus).longValue();
+        check(field.multiply(a, b) == expected, a + " * " + b + " mod " + modulus);
+    }
+
+    private static void check(final boolean condition, final String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+}
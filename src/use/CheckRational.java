@@ -0,0 +1,113 @@
+package use;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import number.number.MathInteger;
+import number.number.Rational;
+
+/**
+ * {@link Rational}の分子・分母をlongで持つ演算と比較の動作確認。longの境界付近の分子・分母と、
+ * 交差積の上位64bitが一致する組について、{@link BigInteger}の分数演算との一致を確かめる。
+ * 失敗した場合は例外を投げる。
+ */
+public class CheckRational {
+
+    public static void main(String[] args) {
+
+        // 小さい値は共有インスタンスになる
+        check(Rational.valueOf(2, 4) == Rational.valueOf(1, 2), "shared instance of 1/2");
+        check(Rational.valueOf(1, 3).add(Rational.valueOf(1, 6)) == Rational.valueOf(1, 2), "shared sum");
+
+        final long[] numerators = { 1, 2, 3, 7, 1L << 31, (1L << 32) - 1, (1L << 32) + 1, 3037000499L,
+            1L << 62, Long.MAX_VALUE - 1, Long.MAX_VALUE };
+        final long[] denominators = { 1, 2, 6, (1L << 32) + 1, 3037000499L, 1L << 62, Long.MAX_VALUE };
+        final List<BigInteger[]> fractions = new ArrayList<>();
+        for (final long n : numerators) {
+            for (final long d : denominators) {
+                fractions.add(fraction(BigInteger.valueOf(n), BigInteger.valueOf(d)));
+                fractions.add(fraction(BigInteger.valueOf(-n), BigInteger.valueOf(d)));
+            }
+            fractions.add(fraction(BigInteger.valueOf(Long.MIN_VALUE), BigInteger.valueOf(n)));
+        }
+        fractions.add(fraction(BigInteger.ZERO, BigInteger.ONE));
+        fractions.add(fraction(BigInteger.ONE.shiftLeft(64).add(BigInteger.ONE), BigInteger.valueOf(3)));
+        fractions.add(fraction(BigInteger.valueOf(5), BigInteger.ONE.shiftLeft(63)));
+        fractions.add(fraction(BigInteger.ONE.shiftLeft(100).negate(),
+                BigInteger.ONE.shiftLeft(70).add(BigInteger.ONE)));
+
+        // p/q と (pk ± 1)/(qk)。交差積の差がqしかないので、上位64bitが一致する
+        final Random random = new Random(5);
+        for (int trial = 0; trial < 40; trial++) {
+            final int bits = trial < 30 ? 31 : 80;
+            final BigInteger p = new BigInteger(bits, random).add(BigInteger.ONE);
+            final BigInteger q = new BigInteger(bits, random).add(BigInteger.ONE);
+            final BigInteger k = new BigInteger(bits == 31 ? 30 : 40, random).add(BigInteger.ONE);
+            final BigInteger sign = random.nextBoolean() ? BigInteger.ONE : BigInteger.ONE.negate();
+            fractions.add(fraction(p.multiply(sign), q));
+            fractions.add(fraction(p.multiply(k).add(BigInteger.ONE).multiply(sign), q.multiply(k)));
+            fractions.add(fraction(p.multiply(k).subtract(BigInteger.ONE).multiply(sign), q.multiply(k)));
+        }
+
+        for (final BigInteger[] x : fractions) {
+            final Rational a = rational(x);
+            checkEquals(a, x[0], x[1], "valueOf(" + x[0] + ", " + x[1] + ")");
+            checkEquals(a.negate(), x[0].negate(), x[1], "-(" + a + ")");
+            if (x[0].signum() != 0) {
+                checkEquals(a.invert(), x[1], x[0], "1 / (" + a + ")");
+            }
+            for (final BigInteger[] y : fractions) {
+                final Rational b = rational(y);
+                final String pair = "(" + a + ") and (" + b + ")";
+                checkEquals(a.add(b), x[0].multiply(y[1]).add(y[0].multiply(x[1])), x[1].multiply(y[1]), pair + " +");
+                checkEquals(a.subtract(b), x[0].multiply(y[1]).subtract(y[0].multiply(x[1])), x[1].multiply(y[1]),
+                        pair + " -");
+                checkEquals(a.multiply(b), x[0].multiply(y[0]), x[1].multiply(y[1]), pair + " *");
+                if (y[0].signum() != 0) {
+                    checkEquals(a.divide(b), x[0].multiply(y[1]), x[1].multiply(y[0]), pair + " /");
+                }
+                final int expected = x[0].multiply(y[1]).compareTo(y[0].multiply(x[1]));
+                check(Integer.signum(a.compareTo(b)) == expected, pair + " compareTo");
+                check(a.equals(b) == (expected == 0), pair + " equals");
+            }
+        }
+
+        System.out.println("Rational: ok");
+
+    }
+
+    private static BigInteger[] fraction(final BigInteger num, final BigInteger den) {
+        return new BigInteger[] { num, den };
+    }
+
+    private static Rational rational(final BigInteger[] fraction) {
+        return Rational.valueOf(MathInteger.valueOf(fraction[0]), MathInteger.valueOf(fraction[1]));
+    }
+
+    /**
+     * {@code actual}が{@code num / den}を既約にし分母を正にしたものと一致し、表現も同じであること。
+     */
+    private static void checkEquals(final Rational actual, final BigInteger num, final BigInteger den,
+            final String message) {
+        BigInteger gcd = num.gcd(den);
+        if (den.signum() < 0) {
+            gcd = gcd.negate();
+        }
+        final BigInteger n = num.divide(gcd);
+        final BigInteger d = den.divide(gcd);
+        check(actual.numerator().bigIntegerValue().equals(n) && actual.denominator().bigIntegerValue().equals(d),
+                message + " = " + actual + ", expected: " + n + "/" + d);
+        final Rational canonical = Rational.valueOf(MathInteger.valueOf(n), MathInteger.valueOf(d));
+        check(actual.equals(canonical) && actual.hashCode() == canonical.hashCode(), message + " representation");
+        check(actual.isZero() == (n.signum() == 0) && actual.signum() == n.signum(), message + " signum");
+    }
+
+    private static void check(final boolean condition, final String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+}
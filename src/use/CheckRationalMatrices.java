@@ -0,0 +1,104 @@
+package use;
+
+import java.util.Random;
+
+import number.algebra.AlgebraicException;
+import number.algebra.Matrices;
+import number.algebra.VectorSpace;
+import number.number.MathInteger;
+import number.number.Rational;
+import number.number.RationalMatrices;
+
+/**
+ * {@link RationalMatrices#solve}のp進持ち上げの動作確認。解の分かっている方程式と、
+ * {@link Matrices.Matrix#solve}の結果との一致を確かめる。失敗した場合は例外を投げる。
+ */
+public class CheckRationalMatrices {
+
+    public static void main(String[] args) {
+
+        // Hilbert行列 1 / (i + j + 1) に対し、分子・分母の大きい解xから b = Hx を作って解く。
+        // 解は最初の持ち上げの桁数では復元できない大きさなので、復元の失敗と再試行を経て求まる
+        for (int n = 2; n <= 10; n++) {
+            final Rational[][] hilbert = new Rational[n][n];
+            final Rational[] x = new Rational[n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    hilbert[i][j] = Rational.valueOf(1, i + j + 1);
+                }
+                x[i] = Rational.valueOf(MathInteger.valueOf(1000000007L * (i + 1) - 3 * i * i),
+                        MathInteger.valueOf(998244353L + 2 * i));
+            }
+            final Matrices<Rational>.Matrix h = Matrices.createMatrixWith(hilbert);
+            final VectorSpace<Rational>.Vector expected = VectorSpace.createVectorWith(x);
+            final VectorSpace<Rational>.Vector b = h.apply(expected);
+            check(RationalMatrices.solve(h, b).equals(expected), "Hilbert " + n);
+        }
+
+        // 乱数の正則な方程式で、Rationalのまま消去法で解いた結果と一致する
+        final Random random = new Random(15);
+        for (int trial = 0; trial < 30; trial++) {
+            final int n = 1 + random.nextInt(10);
+            final Matrices<Rational>.Matrix a = randomMatrix(random, n, n);
+            final VectorSpace<Rational>.Vector b = randomVector(random, n);
+            final VectorSpace<Rational>.Vector x;
+            try {
+                x = a.solve(b);
+            } catch (final AlgebraicException singular) {
+                continue;
+            }
+            final VectorSpace<Rational>.Vector solved = RationalMatrices.solve(a, b);
+            check(solved.equals(x), "random system " + n);
+        }
+
+        // 特異だが解のある方程式は自由変数を0とした解を返す
+        final Matrices<Rational>.Matrix singular = Matrices.createMatrixWith(new Rational[][] {
+            { Rational.valueOf(1, 1), Rational.valueOf(2, 1) },
+            { Rational.valueOf(2, 1), Rational.valueOf(4, 1) },
+        });
+        final VectorSpace<Rational>.Vector consistent = VectorSpace.createVectorWith(Rational.valueOf(3, 2),
+                Rational.valueOf(3, 1));
+        check(singular.apply(RationalMatrices.solve(singular, consistent)).equals(consistent), "singular system");
+
+        // 解のない方程式
+        try {
+            RationalMatrices.solve(singular,
+                    VectorSpace.createVectorWith(Rational.valueOf(1, 1), Rational.valueOf(1, 1)));
+            throw new IllegalStateException("inconsistent system has a solution");
+        } catch (final AlgebraicException expectedException) {
+            // 解が存在しない
+        }
+
+        System.out.println("RationalMatrices: ok");
+
+    }
+
+    private static Rational randomRational(final Random random) {
+        return Rational.valueOf(random.nextInt(2001) - 1000, 1 + random.nextInt(50));
+    }
+
+    private static Matrices<Rational>.Matrix randomMatrix(final Random random, final int rows, final int columns) {
+        final Rational[][] coeffs = new Rational[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                coeffs[i][j] = randomRational(random);
+            }
+        }
+        return Matrices.createMatrixWith(coeffs);
+    }
+
+    private static VectorSpace<Rational>.Vector randomVector(final Random random, final int dim) {
+        final Rational[] coeffs = new Rational[dim];
+        for (int i = 0; i < dim; i++) {
+            coeffs[i] = randomRational(random);
+        }
+        return VectorSpace.createVectorWith(coeffs);
+    }
+
+    private static void check(final boolean condition, final String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+}
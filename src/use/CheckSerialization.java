@@ -0,0 +1,154 @@
+package use;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.math.BigInteger;
+
+import number.number.MathInteger;
+import number.number.Rational;
+
+/**
+ * {@link MathInteger}、{@link Rational}の直列化の動作確認。以前の版で書き出したストリームを読めること、
+ * 読み込んだ値が{@code valueOf}で得たものと同じ表現になること、不正なストリームを拒否することを確かめる。
+ * 失敗した場合は例外を投げる。
+ */
+public class CheckSerialization {
+
+    /** 以前の版で書き出した -2^100 */
+    private static final String MATH_INTEGER_STREAM = ""
+            + "aced0005737200196e756d6265722e6e756d6265722e4d617468496e7465676572c2dda9b160d8cffb0200014c000576"
+            + "616c75657400164c6a6176612f6d6174682f426967496e74656765723b7870737200146a6176612e6d6174682e426967"
+            + "496e74656765728cfc9f1fa93bfb1d030006490008626974436f756e744900096269744c656e67746849001366697273"
+            + "744e6f6e7a65726f427974654e756d49000c6c6f776573745365744269744900067369676e756d5b00096d61676e6974"
+            + "7564657400025b42787200106a6176612e6c616e672e4e756d62657286ac951d0b94e08b0200007870ffffffffffffff"
+            + "fffffffffefffffffeffffffff757200025b42acf317f8060854e002000078700000000d100000000000000000000000"
+            + "0078";
+
+    /** 以前の版で書き出した 3 / -4 */
+    private static final String RATIONAL_STREAM = ""
+            + "aced0005737200166e756d6265722e6e756d6265722e526174696f6e616c62e1faa5f8a6b80f0200024c000364656e74"
+            + "001b4c6e756d6265722f6e756d6265722f4d617468496e74656765723b4c00036e756d71007e00017870737200196e75"
+            + "6d6265722e6e756d6265722e4d617468496e7465676572c2dda9b160d8cffb0200014c000576616c75657400164c6a61"
+            + "76612f6d6174682f426967496e74656765723b7870737200146a6176612e6d6174682e426967496e74656765728cfc9f"
+            + "1fa93bfb1d030006490008626974436f756e744900096269744c656e67746849001366697273744e6f6e7a65726f4279"
+            + "74654e756d49000c6c6f776573745365744269744900067369676e756d5b00096d61676e69747564657400025b427872"
+            + "00106a6176612e6c616e672e4e756d62657286ac951d0b94e08b0200007870fffffffffffffffffffffffefffffffe00"
+            + "000001757200025b42acf317f8060854e002000078700000000104787371007e00037371007e0006ffffffffffffffff"
+            + "fffffffefffffffeffffffff7571007e000a000000010378";
+
+    public static void main(String[] args) throws Exception {
+
+        // 以前の版で書き出したストリーム
+        check(read(hex(MATH_INTEGER_STREAM)).equals(MathInteger.valueOf(BigInteger.ONE.shiftLeft(100).negate())),
+                "MathInteger from previous version");
+        check(read(hex(RATIONAL_STREAM)) == Rational.valueOf(-3, 4), "Rational from previous version");
+
+        // 往復して同じ値・同じ表現に戻る。小さい値は共有インスタンスになる
+        final BigInteger big = BigInteger.ONE.shiftLeft(80);
+        final MathInteger[] integers = { MathInteger.valueOf(0), MathInteger.valueOf(5), MathInteger.valueOf(-1000000),
+            MathInteger.valueOf(Long.MIN_VALUE), MathInteger.valueOf(Long.MAX_VALUE), MathInteger.valueOf(big) };
+        for (final MathInteger integer : integers) {
+            final Object copy = read(write(integer));
+            check(copy.equals(integer) && copy.hashCode() == integer.hashCode(), "round trip of " + integer);
+        }
+        check(read(write(MathInteger.valueOf(5))) == MathInteger.valueOf(5), "shared MathInteger");
+        final Rational[] rationals = { Rational.ZERO, Rational.valueOf(-3, 4), Rational.valueOf(Long.MAX_VALUE, 3),
+            Rational.valueOf(MathInteger.valueOf(big), MathInteger.valueOf(7)),
+            Rational.valueOf(MathInteger.valueOf(3), MathInteger.valueOf(big)) };
+        for (final Rational rational : rationals) {
+            final Object copy = read(write(rational));
+            check(copy.equals(rational) && copy.hashCode() == rational.hashCode(), "round trip of " + rational);
+        }
+        check(read(write(Rational.valueOf(1, 2))) == Rational.valueOf(1, 2), "shared Rational");
+
+        // 既約でない組は約分される
+        check(read(write(new RationalForm(2, 4))) == Rational.valueOf(1, 2), "non-reduced fraction");
+        check(read(write(new RationalForm(6, 3))) == Rational.valueOf(2), "non-reduced integer");
+
+        // 分母が正でない組、欠けた組は拒否する
+        checkRejected(new RationalForm(3, 0), "zero denominator");
+        checkRejected(new RationalForm(3, -4), "negative denominator");
+        checkRejected(new RationalForm(MathInteger.valueOf(3), null), "null denominator");
+
+        System.out.println("Serialization: ok");
+
+    }
+
+    /**
+     * 任意の分子・分母を持つ{@link Rational}の直列化形式を書き出すための代替クラス。
+     * 書き出す際に{@link Rational}のクラス記述子に差し替える。
+     */
+    private static final class RationalForm implements Serializable {
+
+        // クラス記述子は差し替えるので、この値はストリームに現れない
+        private static final long serialVersionUID = 1L;
+
+        private final MathInteger num;
+        private final MathInteger den;
+
+        RationalForm(final long num, final long den) {
+            this(MathInteger.valueOf(num), MathInteger.valueOf(den));
+        }
+
+        RationalForm(final MathInteger num, final MathInteger den) {
+            this.num = num;
+            this.den = den;
+        }
+
+        // Rationalは直列化メソッドを持つので、同じ形式(ブロックデータの終端あり)で書き出す
+        private void writeObject(final ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+        }
+
+    }
+
+    private static void checkRejected(final RationalForm form, final String message) throws Exception {
+        try {
+            read(write(form));
+            throw new IllegalStateException(message + " is accepted");
+        } catch (final InvalidObjectException expected) {
+            // 不正なストリーム
+        }
+    }
+
+    private static byte[] write(final Object obj) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes) {
+            @Override
+            protected void writeClassDescriptor(final ObjectStreamClass desc) throws IOException {
+                super.writeClassDescriptor(
+                        desc.forClass() == RationalForm.class ? ObjectStreamClass.lookup(Rational.class) : desc);
+            }
+        }) {
+            out.writeObject(obj);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object read(final byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    private static byte[] hex(final String hex) {
+        final byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static void check(final boolean condition, final String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+package use;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import number.algebra.Matrices;
+import number.algebra.Matrices.Structure;
+import number.number.MathInteger;
+
+/**
+ * {@link Matrices.Matrix#multiply}の構造を持つ行列の積と疎な行列の積の動作確認。
+ * 各構造の行列(転置したビューを含む)を左右から掛けた結果が、定義どおりの積和と一致することを確かめる。
+ * 失敗した場合は例外を投げる。
+ */
+public class CheckStructuredProducts {
+
+    private static final MathInteger ZERO = MathInteger.valueOf(0);
+    private static final MathInteger ONE = MathInteger.valueOf(1);
+
+    public static void main(String[] args) {
+
+        final Random random = new Random(20);
+        for (final int n : new int[] { 1, 2, 5, 13 }) {
+            final List<Matrices<MathInteger>.Matrix> structured = structuredMatrices(random, n);
+            for (final Matrices<MathInteger>.Matrix s : structured) {
+                // 一般の行列(長方形)を左右から掛ける
+                final Matrices<MathInteger>.Matrix right = randomMatrix(random, n, 3, 1.0);
+                final Matrices<MathInteger>.Matrix left = randomMatrix(random, 4, n, 1.0);
+                checkProduct(s, right);
+                checkProduct(left, s);
+                // 構造を持つ行列同士
+                for (final Matrices<MathInteger>.Matrix t : structured) {
+                    checkProduct(s, t);
+                }
+            }
+        }
+
+        // 左が疎な行列の積はCSR形式で計算する
+        for (int trial = 0; trial < 20; trial++) {
+            final Matrices<MathInteger>.Matrix sparse = randomMatrix(random, 30, 25, 0.05);
+            final Matrices<MathInteger>.Matrix other = randomMatrix(random, 25, 1 + random.nextInt(10), 1.0);
+            checkProduct(sparse, other);
+            checkProduct(sparse.transpose(), randomMatrix(random, 30, 7, 1.0));
+            checkProduct(sparse, randomMatrix(random, 25, 6, 0.05));
+        }
+
+        System.out.println("StructuredProducts: ok");
+
+    }
+
+    /**
+     * 各構造の行列と、それを転置したビュー。
+     */
+    private static List<Matrices<MathInteger>.Matrix> structuredMatrices(final Random random, final int n) {
+        final Matrices<MathInteger> ms = Matrices.of(MathInteger.class, n, n);
+        final List<Matrices<MathInteger>.Matrix> matrices = new ArrayList<>();
+        matrices.add(expect(ms.identity(ONE), Structure.IDENTITY));
+        matrices.add(expect(ms.zero(ZERO), Structure.ZERO));
+
+        final MathInteger[] diagonal = new MathInteger[n];
+        for (int i = 0; i < n; i++) {
+            diagonal[i] = MathInteger.valueOf(2 + random.nextInt(50));
+        }
+        matrices.add(expect(ms.diagonal(diagonal), Structure.DIAGONAL));
+
+        final int[] permutation = new int[n];
+        for (int i = 0; i < n; i++) {
+            permutation[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            final int j = random.nextInt(i);
+            final int swap = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = swap;
+        }
+        matrices.add(expect(ms.permutation(ONE, permutation), Structure.PERMUTATION));
+
+        // 成分から判定される構造
+        final MathInteger[][] upper = new MathInteger[n][n];
+        final MathInteger[][] lower = new MathInteger[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                upper[i][j] = j < i ? ZERO : MathInteger.valueOf(2 + random.nextInt(50));
+                lower[i][j] = i < j ? ZERO : MathInteger.valueOf(2 + random.nextInt(50));
+            }
+        }
+        matrices.add(expect(Matrices.createMatrixWith(upper), Structure.UPPER_TRIANGULAR));
+        matrices.add(expect(Matrices.createMatrixWith(lower), Structure.LOWER_TRIANGULAR));
+        matrices.add(expect(Matrices.createMatrixWith(copyOf(ms.permutation(ONE, permutation))),
+                Structure.PERMUTATION));
+
+        final int count = matrices.size();
+        for (int k = 0; k < count; k++) {
+            matrices.add(matrices.get(k).transpose());
+        }
+        return matrices;
+    }
+
+    private static Matrices<MathInteger>.Matrix expect(final Matrices<MathInteger>.Matrix matrix,
+            final Structure structure) {
+        // 1x1の行列は複数の構造に当てはまるので、2x2以上でのみ確かめる
+        if (matrix.rowSize() > 1) {
+            check(matrix.structure() == structure, "structure " + matrix.structure() + ", expected: " + structure);
+        }
+        return matrix;
+    }
+
+    private static void checkProduct(final Matrices<MathInteger>.Matrix a, final Matrices<MathInteger>.Matrix b) {
+        final MathInteger[][] expected = new MathInteger[a.rowSize()][b.columnSize()];
+        for (int i = 0; i < a.rowSize(); i++) {
+            for (int j = 0; j < b.columnSize(); j++) {
+                MathInteger sum = ZERO;
+                for (int k = 0; k < a.columnSize(); k++) {
+                    sum = sum.add(a.get(i, k).multiply(b.get(k, j)));
+                }
+                expected[i][j] = sum;
+            }
+        }
+        final Matrices<MathInteger>.Matrix product = a.multiply(b);
+        check(product.equals(Matrices.createMatrixWith(expected)),
+                a.structure() + " * " + b.structure() + ":\n" + a + "\n*\n" + b + "\n=\n" + product);
+    }
+
+    /**
+     * 成分のうち{@code density}の割合が0でない行列。
+     */
+    private static Matrices<MathInteger>.Matrix randomMatrix(final Random random, final int rows, final int columns,
+            final double density) {
+        final MathInteger[][] coeffs = new MathInteger[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                coeffs[i][j] = random.nextDouble() < density ? MathInteger.valueOf(random.nextInt(201) - 100) : ZERO;
+            }
+        }
+        return Matrices.createMatrixWith(coeffs);
+    }
+
+    private static MathInteger[][] copyOf(final Matrices<MathInteger>.Matrix matrix) {
+        final MathInteger[][] coeffs = new MathInteger[matrix.rowSize()][matrix.columnSize()];
+        for (int i = 0; i < coeffs.length; i++) {
+            for (int j = 0; j < coeffs[i].length; j++) {
+                coeffs[i][j] = matrix.get(i, j);
+            }
+        }
+        return coeffs;
+    }
+
+    private static void check(final boolean condition, final String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+}
@@ -1,57 +1,334 @@
 package utils;
 
-import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
-import java.util.Map.Entry;
-import java.util.Optional;
-import java.util.Set;
+import java.lang.ref.WeakReference;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
+/**
+ * 値をsoft(またはweak)参照で保持するキャッシュ。
+ *
+ * GCにより値が回収されたエントリは、参照が{@link ReferenceQueue}に積まれた時点で
+ * 以降の操作のついでに取り除かれるため、掃除のコストは回収されたエントリ1件あたり定数となる。
+ * 最大件数を指定した場合は、CLOCK法(second chance)で取り除く。登録の古いエントリから順に見て、
+ * 前回見てから参照されたものは参照の印を消して末尾に回し、参照されていないものを取り除く。
+ * このため頻繁に参照されるエントリは、1回しか使われないエントリが大量に登録されても残る。
+ */
 public class CacheMap<K, V> {
 
-    private final ConcurrentMap<K, SoftReference<V>> cache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<K, ValueReference<K, V>> cache = new ConcurrentHashMap<>();
+    private final ReferenceQueue<V> queue = new ReferenceQueue<>();
+    private final boolean weakValues;
+    private final int maximumSize;
+    private final Queue<ValueReference<K, V>> evictionOrder;
+    private final AtomicInteger evictionOrderSize;
+    private final AtomicLong evictionCount = new AtomicLong();
 
-    private void cleanCache() {
-        Set<Entry<K, SoftReference<V>>> entrySet = this.cache.entrySet();
-        for (Entry<K, SoftReference<V>> entry : entrySet) {
-            if (entry.getValue().get() == null) {
-                entrySet.removeIf(entry::equals);
+    public CacheMap() {
+        this(0, false);
+    }
+
+    /**
+     * @param maximumSize
+     *            保持するエントリ数の上限。0以下なら上限なし。
+     */
+    public CacheMap(final int maximumSize) {
+        this(maximumSize, false);
+    }
+
+    /**
+     * @param maximumSize
+     *            保持するエントリ数の上限。0以下なら上限なし。
+     * @param weakValues
+     *            trueなら値をweak参照で、falseならsoft参照で保持する。
+     */
+    public CacheMap(final int maximumSize, final boolean weakValues) {
+        this.weakValues = weakValues;
+        this.maximumSize = maximumSize;
+        if (maximumSize > 0) {
+            this.evictionOrder = new ConcurrentLinkedQueue<>();
+            this.evictionOrderSize = new AtomicInteger();
+        } else {
+            this.evictionOrder = null;
+            this.evictionOrderSize = null;
+        }
+    }
+
+    private interface ValueReference<K, V> {
+
+        K key();
+
+        V get();
+
+        /**
+         * 参照されたことを記録する。
+         */
+        void touch();
+
+        /**
+         * 参照の記録を消し、消す前に記録があったかを返す。
+         */
+        boolean clearTouched();
+
+    }
+
+    private static final class SoftValue<K, V> extends SoftReference<V> implements ValueReference<K, V> {
+
+        private final K key;
+        private volatile boolean touched;
+
+        SoftValue(final K key, final V value, final ReferenceQueue<? super V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+
+        @Override
+        public K key() {
+            return this.key;
+        }
+
+        @Override
+        public void touch() {
+            // 参照のたびに書き込まないよう、記録がない場合だけ書く
+            if (!this.touched) {
+                this.touched = true;
+            }
+        }
+
+        @Override
+        public boolean clearTouched() {
+            if (this.touched) {
+                this.touched = false;
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+    private static final class WeakValue<K, V> extends WeakReference<V> implements ValueReference<K, V> {
+
+        private final K key;
+        private volatile boolean touched;
+
+        WeakValue(final K key, final V value, final ReferenceQueue<? super V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+
+        @Override
+        public K key() {
+            return this.key;
+        }
+
+        @Override
+        public void touch() {
+            // 参照のたびに書き込まないよう、記録がない場合だけ書く
+            if (!this.touched) {
+                this.touched = true;
+            }
+        }
+
+        @Override
+        public boolean clearTouched() {
+            if (this.touched) {
+                this.touched = false;
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+    private ValueReference<K, V> newReference(final K key, final V value) {
+        if (this.weakValues) {
+            return new WeakValue<>(key, value, this.queue);
+        }
+        return new SoftValue<>(key, value, this.queue);
+    }
+
+    private void expungeStaleEntries() {
+        Object ref;
+        while ((ref = this.queue.poll()) != null) {
+            @SuppressWarnings("unchecked")
+            final ValueReference<K, V> stale = (ValueReference<K, V>) ref;
+            // 同じキーで新しい値が登録済みの場合は取り除かない
+            if (this.cache.remove(stale.key(), stale)) {
+                this.evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    private void recordInsertion(final ValueReference<K, V> ref) {
+        if (this.evictionOrder == null) {
+            return;
+        }
+        this.evictionOrder.offer(ref);
+        if (this.evictionOrderSize.incrementAndGet() > 2 * this.maximumSize) {
+            // 置き換えや回収で無効になった参照が溜まり続けないよう、キューの長さが上限の2倍を超えたら取り除く
+            if (this.evictionOrder.removeIf(this::isStale)) {
+                this.evictionOrderSize.set(this.evictionOrder.size());
+            }
+        }
+        // 他のスレッドが参照し続けても止まるよう、末尾に回すのはキューを1周する分までとする
+        int secondChances = this.evictionOrderSize.get();
+        boolean insertedPassed = false;
+        // 件数は登録されているエントリ数で判定する(キューには無効になった参照も含まれるため)
+        while (this.cache.size() > this.maximumSize) {
+            final ValueReference<K, V> eldest = this.evictionOrder.poll();
+            if (eldest == null) {
+                break;
+            }
+            this.evictionOrderSize.decrementAndGet();
+            // 既に置き換えられたエントリの参照であれば何もしない
+            if (this.isStale(eldest)) {
+                continue;
             }
+            // 登録したばかりのエントリは取り除かず末尾に戻す。2度目に回ってきた場合は、
+            // 取り除けるエントリが残っていない(他のスレッドが取り出し中)ので、そちらに任せて終える
+            if (eldest == ref) {
+                this.evictionOrder.offer(eldest);
+                this.evictionOrderSize.incrementAndGet();
+                if (insertedPassed) {
+                    break;
+                }
+                insertedPassed = true;
+                continue;
+            }
+            if (eldest.clearTouched() && secondChances-- > 0) {
+                this.evictionOrder.offer(eldest);
+                this.evictionOrderSize.incrementAndGet();
+                continue;
+            }
+            if (this.cache.remove(eldest.key(), eldest)) {
+                this.evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 参照がもはやエントリの値でないか(同じキーで置き換えられた、または取り除かれた)。
+     */
+    private boolean isStale(final ValueReference<K, V> ref) {
+        return this.cache.get(ref.key()) != ref;
+    }
+
+    private static <V> V valueOf(final ValueReference<?, V> ref) {
+        return ref == null ? null : ref.get();
+    }
+
+    /**
+     * 値を返し、値が残っていれば参照されたことを記録する。
+     */
+    private static <V> V access(final ValueReference<?, V> ref) {
+        final V value = valueOf(ref);
+        if (value != null) {
+            ref.touch();
         }
+        return value;
     }
 
     public V get(final K key) {
-        this.cleanCache();
-        return Optional.ofNullable(this.cache.get(key)) //
-                .map(Reference::get) //
-                .orElse(null);
+        this.expungeStaleEntries();
+        return access(this.cache.get(key));
     }
 
     public V put(final K key, final V value) {
-        this.cleanCache();
-        return Optional.ofNullable(this.cache.put(key, new SoftReference<>(value))) //
-                .map(Reference::get) //
-                .orElse(null);
+        this.expungeStaleEntries();
+        final ValueReference<K, V> ref = this.newReference(key, value);
+        final V before = valueOf(this.cache.put(key, ref));
+        this.recordInsertion(ref);
+        return before;
     }
 
     public V putIfAbsent(final K key, final V value) {
-        this.cleanCache();
-        SoftReference<V> beforeRef;
-        V before;
-        do {
-            // このputIfAbsentではreferenceが値を持たない場合でも
-            // referenceが残っていればputに失敗する
-            beforeRef = this.cache.putIfAbsent(key, new SoftReference<>(value));
+        this.expungeStaleEntries();
+        final ValueReference<K, V> ref = this.newReference(key, value);
+        while (true) {
+            final ValueReference<K, V> beforeRef = this.cache.putIfAbsent(key, ref);
             if (beforeRef == null) {
                 // putに成功したのでその旨返す
+                this.recordInsertion(ref);
                 return null;
             }
-            // putに成功しなかったが、見かけ上absentなときは再度cleanしてputを試みる。
-            // 取得したreferenceが値を持っていれば(before != nullなら)再試行しない。
-            this.cleanCache();
-        } while ((before = beforeRef.get()) == null);
-        return before;
+            final V before = access(beforeRef);
+            if (before != null) {
+                return before;
+            }
+            // referenceは残っているが値が回収済みの場合は置き換えを試みる
+            if (this.cache.replace(key, beforeRef, ref)) {
+                this.recordInsertion(ref);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * キーに対応する値が無ければ{@code mappingFunction}で計算して登録し、登録済みの値または計算した値を返す。
+     * 同じキーに対する計算は同時に1回しか行われない。{@code mappingFunction}がnullを返した場合は何も登録しない。
+     */
+    public V computeIfAbsent(final K key, final Function<? super K, ? extends V> mappingFunction) {
+        this.expungeStaleEntries();
+        final V cached = access(this.cache.get(key));
+        if (cached != null) {
+            return cached;
+        }
+        // 登録した値がsoft参照のみになる前に回収されないよう、強参照をここで保持する
+        final Object[] result = new Object[1];
+        final boolean[] inserted = new boolean[1];
+        final ValueReference<K, V> ref = this.cache.compute(key, (k, old) -> {
+            final V oldValue = access(old);
+            if (oldValue != null) {
+                result[0] = oldValue;
+                return old;
+            }
+            final V newValue = mappingFunction.apply(k);
+            result[0] = newValue;
+            if (newValue == null) {
+                return null;
+            }
+            inserted[0] = true;
+            return this.newReference(k, newValue);
+        });
+        if (inserted[0]) {
+            this.recordInsertion(ref);
+        }
+        @SuppressWarnings("unchecked")
+        final V value = (V) result[0];
+        return value;
+    }
+
+    public V remove(final K key) {
+        this.expungeStaleEntries();
+        return valueOf(this.cache.remove(key));
+    }
+
+    public void clear() {
+        this.cache.clear();
+        this.expungeStaleEntries();
+    }
+
+    /**
+     * 最大件数を超えたため、または値がGCにより回収されたために取り除いたエントリの累計。
+     * {@link #remove}や{@link #clear()}で取り除いたものは含まない。
+     */
+    public long evictionCount() {
+        this.expungeStaleEntries();
+        return this.evictionCount.get();
+    }
+
+    /**
+     * 登録されているエントリ数。値が回収済みでまだ取り除かれていないエントリを含むことがある。
+     */
+    public int size() {
+        this.expungeStaleEntries();
+        return this.cache.size();
     }
 
 }
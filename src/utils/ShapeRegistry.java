@@ -0,0 +1,158 @@
+package utils;
+
+import java.lang.ref.SoftReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 行数・列数の組ごとに1つのインスタンスを保持するレジストリ。
+ *
+ * 小さいサイズは2次元の表に直接保持するため、登録済みのインスタンスの取得ではオブジェクトを生成しない。
+ * 表に収まらないサイズは行数・列数をそのまま持つエントリのハッシュ表に保持し、こちらも登録済みのインスタンスの取得では
+ * オブジェクトを生成しない。いずれも値はsoft参照で保持する。
+ */
+public final class ShapeRegistry<V> {
+
+    @FunctionalInterface
+    public interface Factory<V> {
+
+        V create(int rows, int columns);
+
+    }
+
+    private final int denseRows;
+    private final int denseColumns;
+    private final Factory<? extends V> factory;
+    private final AtomicReferenceArray<SoftReference<V>> dense;
+    /** 表に収まらないサイズのハッシュ表。読み出しはロックなしで行い、書き込みはこのインスタンスで同期する */
+    private volatile AtomicReferenceArray<Entry<V>> fallback = new AtomicReferenceArray<>(16);
+    /** fallbackに含まれるエントリ数(値が回収済みのものを含む) */
+    private int fallbackCount = 0;
+
+    /**
+     * @param denseRows
+     *            表に直接保持する行数の上限(この値未満の行数を表に保持する)
+     * @param denseColumns
+     *            表に直接保持する列数の上限(この値未満の列数を表に保持する)
+     * @param factory
+     *            未登録のサイズに対するインスタンスの生成方法
+     */
+    public ShapeRegistry(final int denseRows, final int denseColumns, final Factory<? extends V> factory) {
+        this.denseRows = denseRows;
+        this.denseColumns = denseColumns;
+        this.factory = factory;
+        this.dense = new AtomicReferenceArray<>(denseRows * denseColumns);
+    }
+
+    public V get(final int rows, final int columns) {
+        if (0 <= rows && rows < this.denseRows && 0 <= columns && columns < this.denseColumns) {
+            final int index = rows * this.denseColumns + columns;
+            SoftReference<V> ref = this.dense.get(index);
+            V value;
+            if (ref != null && (value = ref.get()) != null) {
+                return value;
+            }
+            final V created = this.factory.create(rows, columns);
+            final SoftReference<V> createdRef = new SoftReference<>(created);
+            while (!this.dense.compareAndSet(index, ref, createdRef)) {
+                // 他のスレッドが先に登録した値が有効であればそちらを使う
+                ref = this.dense.get(index);
+                if (ref != null && (value = ref.get()) != null) {
+                    return value;
+                }
+            }
+            return created;
+        }
+        final V value = lookup(this.fallback, rows, columns);
+        if (value != null) {
+            return value;
+        }
+        return this.register(rows, columns);
+    }
+
+    /**
+     * 不変のエントリ。同じバケットのエントリは{@link #next}で連結する。
+     */
+    private static final class Entry<V> {
+
+        final int rows;
+        final int columns;
+        final SoftReference<V> value;
+        final Entry<V> next;
+
+        Entry(final int rows, final int columns, final SoftReference<V> value, final Entry<V> next) {
+            this.rows = rows;
+            this.columns = columns;
+            this.value = value;
+            this.next = next;
+        }
+
+    }
+
+    private static int indexOf(final int rows, final int columns, final int length) {
+        final int hash = rows * 31 + columns;
+        return (hash ^ (hash >>> 16)) & (length - 1);
+    }
+
+    private static <V> V lookup(final AtomicReferenceArray<Entry<V>> table, final int rows, final int columns) {
+        for (Entry<V> e = table.get(indexOf(rows, columns, table.length())); e != null; e = e.next) {
+            if (e.rows == rows && e.columns == columns) {
+                return e.value.get();
+            }
+        }
+        return null;
+    }
+
+    private synchronized V register(final int rows, final int columns) {
+        // 他のスレッドが先に登録していればそちらを使う
+        final V registered = lookup(this.fallback, rows, columns);
+        if (registered != null) {
+            return registered;
+        }
+        final V created = this.factory.create(rows, columns);
+        AtomicReferenceArray<Entry<V>> table = this.fallback;
+        if ((this.fallbackCount + 1) * 4 > table.length() * 3) {
+            table = this.rehash(table);
+        }
+        final int index = indexOf(rows, columns, table.length());
+        // バケットを作り直す際に、値が回収済みのエントリと同じサイズの古いエントリを取り除く
+        Entry<V> chain = new Entry<>(rows, columns, new SoftReference<>(created), null);
+        for (Entry<V> e = table.get(index); e != null; e = e.next) {
+            if (e.value.get() != null && !(e.rows == rows && e.columns == columns)) {
+                chain = new Entry<>(e.rows, e.columns, e.value, chain);
+            } else {
+                this.fallbackCount--;
+            }
+        }
+        this.fallbackCount++;
+        table.set(index, chain);
+        return created;
+    }
+
+    /**
+     * 値が回収済みのエントリを除いて新しい表に移す。残ったエントリが多ければ表を2倍にする。
+     */
+    private AtomicReferenceArray<Entry<V>> rehash(final AtomicReferenceArray<Entry<V>> table) {
+        int live = 0;
+        for (int i = 0; i < table.length(); i++) {
+            for (Entry<V> e = table.get(i); e != null; e = e.next) {
+                if (e.value.get() != null) {
+                    live++;
+                }
+            }
+        }
+        final int length = (live + 1) * 4 > table.length() * 3 / 2 ? table.length() * 2 : table.length();
+        final AtomicReferenceArray<Entry<V>> rehashed = new AtomicReferenceArray<>(length);
+        for (int i = 0; i < table.length(); i++) {
+            for (Entry<V> e = table.get(i); e != null; e = e.next) {
+                if (e.value.get() != null) {
+                    final int index = indexOf(e.rows, e.columns, length);
+                    rehashed.set(index, new Entry<>(e.rows, e.columns, e.value, rehashed.get(index)));
+                }
+            }
+        }
+        this.fallbackCount = live;
+        this.fallback = rehashed;
+        return rehashed;
+    }
+
+}